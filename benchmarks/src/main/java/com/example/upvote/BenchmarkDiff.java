@@ -0,0 +1,80 @@
+package com.example.upvote;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two JMH JSON result files (-rf json), e.g. the previous release against this one:
+ *
+ *   BenchmarkDiff old.json new.json [threshold-percent]
+ *
+ * Prints one line per benchmark/params with both scores and the change. A change counts as a
+ * regression when it is worse than the threshold (default 10%) in the benchmark's own direction
+ * (lower throughput, higher time) and larger than the two error margins; the exit code is then 1.
+ */
+public class BenchmarkDiff {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BenchmarkDiff <old.json> <new.json> [threshold-percent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+
+        Map<String, JsonNode> before = read(new File(args[0]));
+        Map<String, JsonNode> after = read(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-70s %14s %14s %9s%n", "benchmark", "old", "new", "change");
+        for (Map.Entry<String, JsonNode> e : after.entrySet()) {
+            JsonNode now = e.getValue();
+            JsonNode was = before.get(e.getKey());
+            JsonNode metric = now.get("primaryMetric");
+            String unit = metric.get("scoreUnit").asText();
+            double score = metric.get("score").asDouble();
+            if (was == null) {
+                System.out.printf("%-70s %14s %14.3f %9s  %s%n", e.getKey(), "-", score, "new", unit);
+                continue;
+            }
+            double old = was.get("primaryMetric").get("score").asDouble();
+            double change = (score - old) / old * 100;
+            boolean higherIsBetter = "thrpt".equals(now.get("mode").asText());
+            double worse = higherIsBetter ? -change : change;
+            double noise = error(was) + error(now);
+            boolean regressed = worse > threshold && Math.abs(score - old) > noise;
+            if (regressed) regressions++;
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%%  %s%s%n",
+                    e.getKey(), old, score, change, unit, regressed ? "  REGRESSION" : "");
+        }
+        System.out.printf("%d benchmarks, %d regressions (threshold %.1f%%)%n", after.size(), regressions, threshold);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    // benchmark name + params -> result
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> out = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(run.get("benchmark").asText());
+            JsonNode params = run.get("params");
+            if (params != null) {
+                for (Iterator<Map.Entry<String, JsonNode>> it = params.fields(); it.hasNext(); ) {
+                    Map.Entry<String, JsonNode> p = it.next();
+                    key.append(' ').append(p.getKey()).append('=').append(p.getValue().asText());
+                }
+            }
+            out.put(key.toString(), run);
+        }
+        return out;
+    }
+
+    private static double error(JsonNode run) {
+        double err = run.get("primaryMetric").path("scoreError").asDouble(0);
+        return Double.isNaN(err) ? 0 : err;
+    }
+}
@@ -0,0 +1,403 @@
+package com.example.upvote;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * HTTP load generator for the REST surface, open model:
+ * - requests are started on a fixed schedule (--rate per second) whatever the response times,
+ *   and latency is measured from the scheduled start, so a stalled server shows up in the
+ *   percentiles instead of slowing the generator down (no coordinated omission)
+ * - the mix (--mix) picks an endpoint per request; posts are chosen Zipf-distributed (--zipf),
+ *   so a few hot posts take most of the votes and reads
+ * - every request runs on its own virtual thread (Java 21+, a cached pool before that)
+ * - per endpoint: HdrHistogram percentiles, throughput and errors; text on stdout, JSON in --report
+ * - without --target the application is started in-process on the h2 profile; nothing external needed
+ *   (--profiles to change that, e.g. h2,virtual; --tomcat-threads caps the request pool; --app.name=value
+ *   for any other application property)
+ * Same --seed, same request sequence.
+ *
+ *   mvn -f benchmarks/pom.xml package exec:java -Dexec.mainClass=com.example.upvote.LoadTest \
+ *       -Dexec.args="--rate=2000 --duration=60 --zipf=1.2"
+ */
+public class LoadTest {
+
+    enum Endpoint { LIST, GET, VOTE, LOGIN, REGISTER }
+
+    // -------------------------------------------------------
+    // Options (--name=value)
+    // -------------------------------------------------------
+    record Options(String target, int rate, int durationSec, int warmupSec, int posts, int users,
+                   double zipf, Map<Endpoint, Integer> mix, long seed, int maxInFlight, String report,
+                   String profiles, int tomcatThreads, Map<String, String> app) {
+
+        static Options parse(String[] args) {
+            Map<String, String> o = new HashMap<>();
+            for (String a : args) {
+                if (!a.startsWith("--") || !a.contains("=")) throw new IllegalArgumentException("Expected --name=value: " + a);
+                o.put(a.substring(2, a.indexOf('=')), a.substring(a.indexOf('=') + 1));
+            }
+            Map<String, String> app = new LinkedHashMap<>();
+            o.forEach((name, value) -> {
+                if (name.startsWith("app.")) app.put(name.substring(4), value);
+            });
+            Map<Endpoint, Integer> mix = new LinkedHashMap<>();
+            for (String part : o.getOrDefault("mix", "list=20,get=30,vote=45,login=4,register=1").split(",")) {
+                String[] kv = part.split("=");
+                mix.put(Endpoint.valueOf(kv[0].trim().toUpperCase()), Integer.parseInt(kv[1].trim()));
+            }
+            return new Options(
+                    o.get("target"),
+                    Integer.parseInt(o.getOrDefault("rate", "500")),
+                    Integer.parseInt(o.getOrDefault("duration", "30")),
+                    Integer.parseInt(o.getOrDefault("warmup", "5")),
+                    Integer.parseInt(o.getOrDefault("posts", "1000")),
+                    Integer.parseInt(o.getOrDefault("users", "50")),
+                    Double.parseDouble(o.getOrDefault("zipf", "1.1")),
+                    mix,
+                    Long.parseLong(o.getOrDefault("seed", "42")),
+                    Integer.parseInt(o.getOrDefault("max-in-flight", "10000")),
+                    o.getOrDefault("report", "target/load-report.json"),
+                    o.getOrDefault("profiles", "h2"),
+                    Integer.parseInt(o.getOrDefault("tomcat-threads", "0")),
+                    app);
+        }
+    }
+
+    private final Options options;
+    private final HttpClient http;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private String base;
+
+    private long[] postIds;
+    private final List<String> usernames = new ArrayList<>();
+    private final List<String> sessions = new ArrayList<>();
+    private final AtomicInteger registered = new AtomicInteger();
+
+    private final Map<Endpoint, ConcurrentHistogram> latency = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, LongAdder> completed = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, ConcurrentMap<String, LongAdder>> errors = new EnumMap<>(Endpoint.class);
+    private final AtomicLong inFlight = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+
+    LoadTest(Options options) {
+        this.options = options;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        for (Endpoint e : Endpoint.values()) {
+            latency.put(e, new ConcurrentHistogram(3));
+            completed.put(e, new LongAdder());
+            errors.put(e, new ConcurrentHashMap<>());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        ConfigurableApplicationContext app = null;
+        String target = options.target();
+        if (target == null) {
+            Map<String, Object> properties = new LinkedHashMap<>();
+            properties.put("server.port", 0);
+            properties.put("spring.jpa.show-sql", false);
+            // seeding registers and logs in every user from one address, and each user votes far above
+            // its bucket: with RateLimitFilter on, the test would measure 429s
+            properties.put("upvote.rate-limit.enabled", false);
+            properties.put("logging.level.root", "WARN");
+            properties.put("logging.level.org.springframework.security", "WARN");
+            if (options.tomcatThreads() > 0) properties.put("server.tomcat.threads.max", options.tomcatThreads());
+            properties.putAll(options.app());
+            app = new SpringApplicationBuilder(UpvoteDemoApplication.class)
+                    .profiles(options.profiles().split(","))
+                    .properties(properties)
+                    .run();
+            target = "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+            System.out.printf("Application started with profiles %s, %s request threads%n", options.profiles(),
+                    Threading.VIRTUAL.isActive(app.getEnvironment()) ? "virtual" : "platform");
+        }
+        try {
+            LoadTest test = new LoadTest(options);
+            test.base = target;
+            test.seed();
+            test.run();
+            test.report();
+        } finally {
+            if (app != null) app.close();
+        }
+    }
+
+    // -------------------------------------------------------
+    // Setup: posts to vote on, logged-in users to vote with
+    // -------------------------------------------------------
+    private void seed() throws Exception {
+        System.out.printf("Seeding %d posts and %d users on %s%n", options.posts(), options.users(), base);
+        postIds = new long[options.posts()];
+        for (int i = 0; i < postIds.length; i++) {
+            HttpResponse<String> resp = http.send(json(URI.create(base + "/posts"), "{\"title\":\"Load post " + i + "\"}"),
+                    HttpResponse.BodyHandlers.ofString());
+            postIds[i] = mapper.readTree(resp.body()).get("id").asLong();
+        }
+        for (int i = 0; i < options.users(); i++) {
+            String username = "load-" + options.seed() + "-" + i;
+            register(username);
+            usernames.add(username);
+            sessions.add(login(username).orElseThrow(() -> new IllegalStateException("Login failed for " + username)));
+        }
+    }
+
+    // -------------------------------------------------------
+    // Open-model run
+    // -------------------------------------------------------
+    private void run() throws InterruptedException {
+        Random random = new Random(options.seed());
+        ZipfSampler posts = new ZipfSampler(postIds.length, options.zipf());
+        Endpoint[] wheel = wheel(options.mix());
+
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / options.rate();
+        long total = (long) options.rate() * (options.warmupSec() + options.durationSec());
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(options.warmupSec());
+
+        System.out.printf("Running %d req/s for %ds (+%ds warmup) on %s threads%n", options.rate(),
+                options.durationSec(), options.warmupSec(), virtualThreadsAvailable() ? "virtual" : "platform");
+        try (Closer closer = new Closer(executor())) {
+            ExecutorService pool = closer.pool();
+            for (long i = 0; i < total; i++) {
+                long intended = start + i * periodNanos;
+                long wait = intended - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait);
+
+                // drawn on this thread only, so the sequence depends on the seed alone
+                Endpoint endpoint = wheel[random.nextInt(wheel.length)];
+                long postId = postIds[posts.sample(random)];
+                int user = random.nextInt(sessions.size());
+                boolean up = random.nextBoolean();
+                boolean measured = intended >= measureFrom;
+
+                if (inFlight.get() >= options.maxInFlight()) {
+                    if (measured) dropped.increment();
+                    continue;
+                }
+                inFlight.incrementAndGet();
+                pool.execute(() -> {
+                    try {
+                        String error = call(endpoint, postId, user, up);
+                        if (measured) record(endpoint, intended, error);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            }
+        }
+    }
+
+    // one request; returns null on success, otherwise an error label
+    private String call(Endpoint endpoint, long postId, int user, boolean up) {
+        try {
+            int status;
+            switch (endpoint) {
+                case LIST -> status = http.send(HttpRequest.newBuilder(URI.create(base + "/posts?size=20")).GET().build(),
+                        HttpResponse.BodyHandlers.discarding()).statusCode();
+                case GET -> status = http.send(HttpRequest.newBuilder(URI.create(base + "/posts/" + postId)).GET().build(),
+                        HttpResponse.BodyHandlers.discarding()).statusCode();
+                case VOTE -> {
+                    HttpRequest.Builder req = HttpRequest.newBuilder(URI.create(base + "/posts/" + postId + "/upvote"))
+                            .header("Cookie", sessions.get(user));
+                    req = up ? req.POST(HttpRequest.BodyPublishers.noBody()) : req.DELETE();
+                    status = http.send(req.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+                }
+                case LOGIN -> {
+                    return login(usernames.get(user)).isPresent() ? null : "login rejected";
+                }
+                case REGISTER -> status = register("load-" + options.seed() + "-r" + registered.incrementAndGet());
+                default -> throw new IllegalStateException();
+            }
+            return status / 100 == 2 ? null : "HTTP " + status;
+        } catch (IOException e) {
+            return e.getClass().getSimpleName();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "interrupted";
+        }
+    }
+
+    private void record(Endpoint endpoint, long intended, String error) {
+        latency.get(endpoint).recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended));
+        completed.get(endpoint).increment();
+        if (error != null) errors.get(endpoint).computeIfAbsent(error, k -> new LongAdder()).increment();
+    }
+
+    // -------------------------------------------------------
+    // Report
+    // -------------------------------------------------------
+    private void report() throws IOException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        System.out.printf("%n%-9s %9s %9s %8s %9s %9s %9s %9s %9s   (latency in ms)%n",
+                "endpoint", "requests", "req/s", "errors", "p50", "p90", "p99", "p99.9", "max");
+        for (Endpoint e : Endpoint.values()) {
+            Histogram h = latency.get(e);
+            long n = completed.get(e).sum();
+            if (n == 0) continue;
+            long failed = errors.get(e).values().stream().mapToLong(LongAdder::sum).sum();
+            System.out.printf("%-9s %9d %9.1f %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n", e.name().toLowerCase(), n,
+                    n / (double) options.durationSec(), failed, ms(h, 50), ms(h, 90), ms(h, 99), ms(h, 99.9),
+                    h.getMaxValue() / 1000.0);
+            errors.get(e).forEach((label, count) -> System.out.printf("          %s: %d%n", label, count.sum()));
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("endpoint", e.name().toLowerCase());
+            row.put("requests", n);
+            row.put("throughput", n / (double) options.durationSec());
+            row.put("errors", failed);
+            Map<String, Long> byLabel = new LinkedHashMap<>();
+            errors.get(e).forEach((label, count) -> byLabel.put(label, count.sum()));
+            row.put("errorsByType", byLabel);
+            row.put("p50Ms", ms(h, 50));
+            row.put("p90Ms", ms(h, 90));
+            row.put("p99Ms", ms(h, 99));
+            row.put("p999Ms", ms(h, 99.9));
+            row.put("maxMs", h.getMaxValue() / 1000.0);
+            rows.add(row);
+        }
+        if (dropped.sum() > 0) System.out.printf("%d requests not sent: --max-in-flight reached%n", dropped.sum());
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("options", options);
+        out.put("dropped", dropped.sum());
+        out.put("endpoints", rows);
+        File file = new File(options.report());
+        if (file.getParentFile() != null) file.getParentFile().mkdirs();
+        mapper.writerWithDefaultPrettyPrinter().writeValue(file, out);
+        System.out.println("Report written to " + file);
+    }
+
+    private static double ms(Histogram h, double percentile) {
+        return h.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    // -------------------------------------------------------
+    // HTTP helpers
+    // -------------------------------------------------------
+
+    private int register(String username) throws IOException, InterruptedException {
+        String body = mapper.writeValueAsString(Map.of("username", username, "password", "pw-" + username));
+        return http.send(json(URI.create(base + "/auth/register"), body), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    // form login: a redirect without "error" and a fresh session cookie means success
+    private Optional<String> login(String username) throws IOException, InterruptedException {
+        String form = "username=" + URLEncoder.encode(username, StandardCharsets.UTF_8)
+                + "&password=" + URLEncoder.encode("pw-" + username, StandardCharsets.UTF_8);
+        HttpResponse<Void> resp = http.send(HttpRequest.newBuilder(URI.create(base + "/perform_login"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        String location = resp.headers().firstValue("Location").orElse("");
+        String cookie = resp.headers().firstValue("Set-Cookie").orElse("");
+        if (resp.statusCode() != 302 || location.contains("error") || !cookie.startsWith("JSESSIONID=")) {
+            return Optional.empty();
+        }
+        return Optional.of(cookie.substring(0, cookie.indexOf(';')));
+    }
+
+    private static HttpRequest json(URI uri, String body) {
+        return HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    // -------------------------------------------------------
+    // Workload helpers
+    // -------------------------------------------------------
+
+    // endpoint per slot, proportional to the mix weights
+    private static Endpoint[] wheel(Map<Endpoint, Integer> mix) {
+        List<Endpoint> slots = new ArrayList<>();
+        mix.forEach((e, weight) -> {
+            for (int i = 0; i < weight; i++) slots.add(e);
+        });
+        if (slots.isEmpty()) throw new IllegalArgumentException("Empty --mix");
+        return slots.toArray(new Endpoint[0]);
+    }
+
+    /** Rank r (0-based) drawn with probability proportional to 1 / (r + 1)^s, by binary search over the CDF. */
+    static final class ZipfSampler {
+        private final double[] cdf;
+
+        ZipfSampler(int n, double s) {
+            cdf = new double[n];
+            double sum = 0;
+            for (int r = 0; r < n; r++) {
+                sum += 1 / Math.pow(r + 1, s);
+                cdf[r] = sum;
+            }
+            for (int r = 0; r < n; r++) cdf[r] /= sum;
+        }
+
+        int sample(Random random) {
+            int i = Arrays.binarySearch(cdf, random.nextDouble());
+            return Math.min(i >= 0 ? i : -i - 1, cdf.length - 1);
+        }
+    }
+
+    // virtual threads when the runtime has them (the project itself targets Java 17)
+    private static ExecutorService executor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private static boolean virtualThreadsAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    // waits for the requests still running when the schedule ends
+    private record Closer(ExecutorService pool) implements AutoCloseable {
+        @Override
+        public void close() throws InterruptedException {
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+}
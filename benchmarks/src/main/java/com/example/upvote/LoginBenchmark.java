@@ -0,0 +1,78 @@
+package com.example.upvote;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AppUserService.loadUserByUsername on its own (cached lookup) and as a whole form login
+ * (lookup + BCrypt verify on the bounded encoder, strength 10 as configured).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginBenchmark {
+
+    private static final String USERNAME = "bench";
+    private static final String PASSWORD = "bench-password";
+
+    private BoundedPasswordEncoder encoder;
+    private AppUserService users;
+
+    @Setup
+    public void setup() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(10),
+                Runtime.getRuntime().availableProcessors(), 64, 5000, registry);
+        AppUser user = new AppUser(USERNAME, encoder.encode(PASSWORD), "USER");
+        users = new AppUserService(Optional.of(repository(user)), encoder, registry,
+                10_000, Duration.ofMinutes(5), Duration.ofSeconds(30));
+    }
+
+    @TearDown
+    public void tearDown() {
+        encoder.shutdown();
+    }
+
+    @Benchmark
+    public UserDetails loadUserByUsername() {
+        return users.loadUserByUsername(USERNAME);
+    }
+
+    @Benchmark
+    public boolean login() {
+        UserDetails details = users.loadUserByUsername(USERNAME);
+        return encoder.matches(PASSWORD, details.getPassword());
+    }
+
+    // just findByUsername; no database involved
+    private static AppUserRepository repository(AppUser user) {
+        return (AppUserRepository) Proxy.newProxyInstance(LoginBenchmark.class.getClassLoader(),
+                new Class<?>[]{AppUserRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findByUsername" -> Optional.of(user).filter(u -> u.getUsername().equals(args[0]));
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "AppUserRepository(benchmark)";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
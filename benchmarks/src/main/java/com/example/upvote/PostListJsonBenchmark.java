@@ -0,0 +1,75 @@
+package com.example.upvote;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON cost of a post listing at 1k / 100k posts:
+ * - page: one PostPage body as GET /posts builds it (a whole listing, as all() used to return)
+ * - ndjson: the same rows written as GET /posts/export streams them
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostListJsonBenchmark {
+
+    @Param({"1000", "100000"})
+    public int posts;
+
+    private ObjectMapper mapper;
+    private PostPage page;
+
+    @Setup
+    public void setup() {
+        mapper = Jackson2ObjectMapperBuilder.json().build(); // Spring Boot's defaults (java.time support)
+        Instant now = Instant.now();
+        List<Post> items = new ArrayList<>(posts);
+        for (int i = 0; i < posts; i++) {
+            items.add(Post.restore((long) i + 1, "Post title number " + i, i % 500, now.minusSeconds(i), i / 1000.0));
+        }
+        page = new PostPage(items, new PostPage.Cursor(0, 1).encode());
+    }
+
+    @Benchmark
+    public byte[] page() throws IOException {
+        return mapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public void ndjson() throws IOException {
+        JsonGenerator gen = mapper.getFactory().createGenerator(OutputStream.nullOutputStream());
+        gen.setRootValueSeparator(null);
+        for (Post p : page.items()) {
+            gen.writeStartObject();
+            gen.writeNumberField("id", p.getId());
+            gen.writeStringField("title", p.getTitle());
+            gen.writeNumberField("upvotes", p.getUpvotes());
+            gen.writeStringField("createdAt", p.getCreatedAt().toString());
+            gen.writeEndObject();
+            gen.writeRaw('\n');
+        }
+        gen.flush();
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.upvote;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Startup-time report: the packaged application started again and again as separate JVMs, per configuration
+ * - ready:   process start until GET /actuator/health/readiness answers 200, measured from here
+ * - started: "Started UpvoteDemoApplication in x seconds" (Spring's own count: context refresh + web server)
+ * - warm:    StartupTasks done (initial user, leaderboard, search index), as it logs it, from JVM start
+ * Runs of the configurations are interleaved, so disk cache and CPU frequency drift hit all of them alike;
+ * the first --warmup-runs of each are dropped. Text on stdout, JSON in --report.
+ * Default configurations, both from one mvn -Pfast-startup package (the fat jar is the current artifact:
+ * its AOT classes are ignored unless spring.aot.enabled is set):
+ *   current: java -jar target/upvote-demo-0.0.1-SNAPSHOT.jar, profile h2
+ *   fast:    extracted jar + CDS archive + AOT initializers, profiles h2,fast (StartupTasks deferred)
+ * Any other: --config.<name>="<command line>", replacing the defaults.
+ *
+ *   mvn -Pfast-startup package -DskipTests
+ *   mvn -f benchmarks/pom.xml package exec:java -Dexec.mainClass=com.example.upvote.StartupBenchmark \
+ *       -Dexec.args="--runs=10"
+ */
+public class StartupBenchmark {
+
+    private static final Pattern STARTED = Pattern.compile("Started \\S+ in ([0-9.]+) seconds");
+    private static final Pattern WARM = Pattern.compile("Startup tasks done in \\d+ ms.*?, (\\d+) ms after JVM start");
+
+    private static final String JAR = "target/upvote-demo-0.0.1-SNAPSHOT.jar";
+    private static final String EXTRACTED = "target/app/upvote-demo-0.0.1-SNAPSHOT.jar";
+
+    // -------------------------------------------------------
+    // Options (--name=value)
+    // -------------------------------------------------------
+    record Options(int runs, int warmupRuns, int timeoutSec, String probe, String report, Map<String, String> configs) {
+
+        static Options parse(String[] args) {
+            Map<String, String> o = new HashMap<>();
+            for (String a : args) {
+                if (!a.startsWith("--") || !a.contains("=")) throw new IllegalArgumentException("Expected --name=value: " + a);
+                o.put(a.substring(2, a.indexOf('=')), a.substring(a.indexOf('=') + 1));
+            }
+            Map<String, String> configs = new LinkedHashMap<>();
+            o.forEach((name, value) -> {
+                if (name.startsWith("config.")) configs.put(name.substring(7), value);
+            });
+            if (configs.isEmpty()) {
+                configs.put("current", "java -jar " + JAR + " --spring.profiles.active=h2");
+                configs.put("fast", "java -XX:SharedArchiveFile=target/app/app.jsa -Dspring.aot.enabled=true -jar "
+                        + EXTRACTED + " --spring.profiles.active=h2,fast");
+            }
+            return new Options(
+                    Integer.parseInt(o.getOrDefault("runs", "5")),
+                    Integer.parseInt(o.getOrDefault("warmup-runs", "1")),
+                    Integer.parseInt(o.getOrDefault("timeout", "120")),
+                    o.getOrDefault("probe", "/actuator/health/readiness"),
+                    o.getOrDefault("report", "target/startup-report.json"),
+                    configs);
+        }
+    }
+
+    /** One start of one configuration, in ms; -1 where the log line never came. */
+    record Run(long readyMs, long startedMs, long warmMs) {}
+
+    private final Options options;
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    StartupBenchmark(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        StartupBenchmark benchmark = new StartupBenchmark(Options.parse(args));
+        benchmark.report(benchmark.run());
+    }
+
+    private Map<String, List<Run>> run() throws Exception {
+        Map<String, List<Run>> runs = new LinkedHashMap<>();
+        options.configs().keySet().forEach(name -> runs.put(name, new ArrayList<>()));
+        for (int i = 0; i < options.warmupRuns() + options.runs(); i++) {
+            boolean warmup = i < options.warmupRuns();
+            for (Map.Entry<String, String> config : options.configs().entrySet()) {
+                Run run = start(config.getValue());
+                System.out.printf("%-8s run %d%s: ready %d ms, started %d ms, warm %d ms%n", config.getKey(), i + 1,
+                        warmup ? " (warmup)" : "", run.readyMs(), run.startedMs(), run.warmMs());
+                if (!warmup) runs.get(config.getKey()).add(run);
+            }
+        }
+        return runs;
+    }
+
+    // -------------------------------------------------------
+    // One start: spawn, poll the readiness probe, wait for the warm line, stop
+    // -------------------------------------------------------
+    private Run start(String commandLine) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>(Arrays.asList(commandLine.trim().split("\\s+")));
+        command.add("--server.port=" + port);
+        command.add("--spring.jpa.show-sql=false");
+
+        long t0 = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        CompletableFuture<Long> started = new CompletableFuture<>();
+        CompletableFuture<Long> warm = new CompletableFuture<>();
+        Thread reader = new Thread(() -> readLog(process, started, warm), "startup-log");
+        reader.setDaemon(true);
+        reader.start();
+
+        try {
+            long deadline = t0 + TimeUnit.SECONDS.toNanos(options.timeoutSec());
+            URI probe = URI.create("http://localhost:" + port + options.probe());
+            long readyMs = -1;
+            while (System.nanoTime() < deadline && process.isAlive()) {
+                if (ready(probe)) {
+                    readyMs = (System.nanoTime() - t0) / 1_000_000;
+                    break;
+                }
+                Thread.sleep(5);
+            }
+            if (readyMs < 0) throw new IllegalStateException("Not ready within " + options.timeoutSec() + "s: " + commandLine);
+            long remaining = Math.max(1, deadline - System.nanoTime());
+            return new Run(readyMs, await(started, remaining), await(warm, remaining));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) process.destroyForcibly().waitFor();
+        }
+    }
+
+    private static void readLog(Process process, CompletableFuture<Long> started, CompletableFuture<Long> warm) {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            for (String line; (line = in.readLine()) != null; ) {
+                Matcher m = STARTED.matcher(line);
+                if (m.find()) started.complete(Math.round(Double.parseDouble(m.group(1)) * 1000));
+                m = WARM.matcher(line);
+                if (m.find()) warm.complete(Long.parseLong(m.group(1)));
+            }
+        } catch (IOException e) {
+            // the process went away
+        }
+        started.complete(-1L);
+        warm.complete(-1L);
+    }
+
+    private boolean ready(URI probe) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(probe).timeout(Duration.ofSeconds(1)).GET().build();
+            return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            return false; // not listening yet
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static long await(CompletableFuture<Long> value, long timeoutNanos) {
+        try {
+            return value.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    // -------------------------------------------------------
+    // Report
+    // -------------------------------------------------------
+    private void report(Map<String, List<Run>> runs) throws IOException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        Map<String, Long> baseline = null;
+        System.out.printf("%n%-8s %5s %9s %9s %9s %9s %9s   (ms, median of the runs)%n",
+                "config", "runs", "ready", "min", "max", "started", "warm");
+        for (Map.Entry<String, List<Run>> e : runs.entrySet()) {
+            List<Run> r = e.getValue();
+            long[] ready = r.stream().mapToLong(Run::readyMs).sorted().toArray();
+            Map<String, Long> medians = new LinkedHashMap<>();
+            medians.put("readyMs", median(ready));
+            medians.put("startedMs", median(r.stream().mapToLong(Run::startedMs).sorted().toArray()));
+            medians.put("warmMs", median(r.stream().mapToLong(Run::warmMs).sorted().toArray()));
+            System.out.printf("%-8s %5d %9d %9d %9d %9d %9d%n", e.getKey(), r.size(), medians.get("readyMs"),
+                    ready.length == 0 ? -1 : ready[0], ready.length == 0 ? -1 : ready[ready.length - 1],
+                    medians.get("startedMs"), medians.get("warmMs"));
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("config", e.getKey());
+            row.put("command", options.configs().get(e.getKey()));
+            row.putAll(medians);
+            row.put("runs", r);
+            if (baseline == null) {
+                baseline = medians;
+            } else if (baseline.get("readyMs") > 0) {
+                double speedup = baseline.get("readyMs") / (double) medians.get("readyMs");
+                row.put("readySpeedup", speedup);
+                System.out.printf("%-8s ready %.2fx faster than %s%n", e.getKey(), speedup, rows.get(0).get("config"));
+            }
+            rows.add(row);
+        }
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("options", options);
+        out.put("java", System.getProperty("java.version"));
+        out.put("cpus", Runtime.getRuntime().availableProcessors());
+        out.put("configs", rows);
+        File file = new File(options.report());
+        if (file.getParentFile() != null) file.getParentFile().mkdirs();
+        mapper.writerWithDefaultPrettyPrinter().writeValue(file, out);
+        System.out.println("Report written to " + file);
+    }
+
+    private static long median(long[] sorted) {
+        return sorted.length == 0 ? -1 : sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.upvote;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * POST / DELETE /posts/{id}/upvote over HTTP against the whole application on H2 (profile h2),
+ * logged in as the initial user:
+ * - toggle: vote + unvote, both move the count (ledger, counter, journal, leaderboard, stream)
+ * - repeatVote: an upvote the caller already holds (the no-op path)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UpvoteEndToEndBenchmark {
+
+    // created by StartupTasks
+    private static final String USERNAME = "Jhansi";
+    private static final String PASSWORD = "Teji";
+
+    private ConfigurableApplicationContext app;
+    private HttpClient http;
+    private String base;
+    private String session;
+    private URI upvote;
+    private URI repeat;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        app = new SpringApplicationBuilder(UpvoteDemoApplication.class)
+                .profiles("h2")
+                .properties("server.port=0",
+                        "spring.jpa.show-sql=false",
+                        "upvote.rate-limit.enabled=false", // one user toggling as fast as it can
+                        "logging.level.root=WARN",
+                        "logging.level.org.springframework.security=WARN")
+                .run();
+        base = "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+        http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        session = login();
+        upvote = URI.create(base + "/posts/" + createPost("toggled") + "/upvote");
+        repeat = URI.create(base + "/posts/" + createPost("held") + "/upvote");
+        send(HttpRequest.newBuilder(repeat).POST(HttpRequest.BodyPublishers.noBody()));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        app.close();
+    }
+
+    @Benchmark
+    public int toggle() throws Exception {
+        send(HttpRequest.newBuilder(upvote).POST(HttpRequest.BodyPublishers.noBody()));
+        return send(HttpRequest.newBuilder(upvote).DELETE());
+    }
+
+    @Benchmark
+    public int repeatVote() throws Exception {
+        return send(HttpRequest.newBuilder(repeat).POST(HttpRequest.BodyPublishers.noBody()));
+    }
+
+    // -------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------
+
+    private int send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<Void> resp = http.send(request.header("Cookie", session).build(), HttpResponse.BodyHandlers.discarding());
+        if (resp.statusCode() != 200) throw new IllegalStateException("Unexpected status " + resp.statusCode());
+        return resp.statusCode();
+    }
+
+    // form login; the session cookie of the redirect is all later requests need
+    private String login() throws IOException, InterruptedException {
+        String form = "username=" + URLEncoder.encode(USERNAME, StandardCharsets.UTF_8)
+                + "&password=" + URLEncoder.encode(PASSWORD, StandardCharsets.UTF_8);
+        HttpResponse<Void> resp = http.send(HttpRequest.newBuilder(URI.create(base + "/perform_login"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        String location = resp.headers().firstValue("Location").orElse("");
+        String cookie = resp.headers().firstValue("Set-Cookie").orElse("");
+        if (location.contains("error") || !cookie.startsWith("JSESSIONID=")) {
+            throw new IllegalStateException("Login failed: " + resp.statusCode() + " " + location);
+        }
+        return cookie.substring(0, cookie.indexOf(';'));
+    }
+
+    private long createPost(String title) throws IOException, InterruptedException {
+        HttpResponse<String> resp = http.send(HttpRequest.newBuilder(URI.create(base + "/posts"))
+                .header("Content-Type", "application/json")
+                .header("Cookie", session)
+                .POST(HttpRequest.BodyPublishers.ofString("{\"title\":\"" + title + "\"}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        return new ObjectMapper().readTree(resp.body()).get("id").asLong();
+    }
+}
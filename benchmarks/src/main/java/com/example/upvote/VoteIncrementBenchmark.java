@@ -0,0 +1,54 @@
+package com.example.upvote;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One hot post, 8 threads voting on it:
+ * - postIncrement: the entity's plain upvotes++ (racy, loses updates; the contended baseline)
+ * - voteCounterIncrement: VoteCounter, what the vote endpoints actually use
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VoteIncrementBenchmark {
+
+    private Post post;
+    private VoteCounter counter;
+    private long postId;
+
+    @Setup
+    public void setup() {
+        post = new Post("hot");
+        InMemoryPostStore store = new InMemoryPostStore();
+        postId = store.save(new Post("hot")).getId();
+        counter = new VoteCounter(store);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void postIncrement() {
+        post.increment();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public OptionalLong voteCounterIncrement() {
+        return counter.increment(postId);
+    }
+}
@@ -31,6 +31,13 @@ public class AppUser {
         return id;
     }
 
+    /**
+     * Only used by the in-memory fallback store; JPA assigns ids itself.
+     */
+    public void setId(Long id) {
+        this.id = id;
+    }
+
     public String getUsername() {
         return username;
     }
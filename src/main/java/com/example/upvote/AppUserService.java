@@ -1,21 +1,32 @@
 package com.example.upvote;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.security.oauth2.core.oidc.user.OidcUser;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * AppUserService:
- * - provides Spring Security user lookup (loadUserByUsername)
+ * - provides Spring Security user lookup (loadUserByUsername), cached per username
  * - provides register/registerNewUser to save new users (with BCrypt password hashing)
  * - provides a helper for OIDC users (createOrUpdateFromOidc)
  */
@@ -29,39 +40,122 @@ public class AppUserService implements UserDetailsService {
 
     // in-memory fallback store (used only when users == null)
     private final java.util.concurrent.ConcurrentMap<String, AppUser> inMemoryUsers = new java.util.concurrent.ConcurrentHashMap<>();
+    private final java.util.concurrent.atomic.AtomicLong inMemoryIds = new java.util.concurrent.atomic.AtomicLong();
 
+    // username -> id; ids never change once assigned, so entries are never invalidated
+    private final java.util.concurrent.ConcurrentMap<String, Long> userIds = new java.util.concurrent.ConcurrentHashMap<>();
+
+    // login lookups: known users, and (shorter lived) usernames that do not exist, so
+    // credential-stuffing floods of random names don't turn into one DB query each
+    private final Cache<String, CachedUser> knownUsers;
+    private final Cache<String, Boolean> unknownUsers;
+
+    // latency by result; registered once, recorded with plain nanoTime deltas
+    private final Timer loadCached;
+    private final Timer loadStored;
+    private final Timer loadUnknown;
+    private final Timer registerOk;
+    private final Timer registerExists;
+    private final Timer registerFailed;
+    private final Timer oidcCached;
+    private final Timer oidcStored;
 
     // allow AppUserRepository to be absent. PasswordEncoder is required.
     @org.springframework.beans.factory.annotation.Autowired
-    public AppUserService(java.util.Optional<AppUserRepository> usersOpt, PasswordEncoder passwordEncoder) {
+    public AppUserService(java.util.Optional<AppUserRepository> usersOpt, PasswordEncoder passwordEncoder,
+                          MeterRegistry registry,
+                          @Value("${upvote.cache.users.max-size:10000}") long maxSize,
+                          @Value("${upvote.cache.users.ttl:5m}") Duration ttl,
+                          @Value("${upvote.cache.users.negative-ttl:30s}") Duration negativeTtl) {
         this.users = usersOpt.orElse(null);
         this.passwordEncoder = passwordEncoder;
+        this.knownUsers = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build();
+        this.unknownUsers = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(negativeTtl).recordStats().build();
+        CaffeineCacheMetrics.monitor(registry, knownUsers, "users");
+        CaffeineCacheMetrics.monitor(registry, unknownUsers, "users.unknown");
+
+        this.loadCached = timer(registry, "upvote.users.load", "cached");
+        this.loadStored = timer(registry, "upvote.users.load", "stored");
+        this.loadUnknown = timer(registry, "upvote.users.load", "unknown");
+        this.registerOk = timer(registry, "upvote.users.register", "ok");
+        this.registerExists = timer(registry, "upvote.users.register", "exists");
+        this.registerFailed = timer(registry, "upvote.users.register", "failed");
+        this.oidcCached = timer(registry, "upvote.users.oidc", "cached");
+        this.oidcStored = timer(registry, "upvote.users.oidc", "stored");
+    }
+
+    private static Timer timer(MeterRegistry registry, String name, String result) {
+        return Timer.builder(name).tag("result", result).register(registry);
     }
 
 
     // --- Spring Security user lookup used during authentication ---
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        AppUser appUser;
-        if (users != null) {
-            appUser = users.findByUsername(username)
-                    .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
-        } else {
-            appUser = inMemoryUsers.get(username);
-            if (appUser == null) throw new UsernameNotFoundException("User not found: " + username);
+        long start = System.nanoTime();
+        Timer timer = loadCached;
+        CachedUser cached = knownUsers.getIfPresent(username);
+        if (cached == null) {
+            if (unknownUsers.getIfPresent(username) != null) {
+                loadUnknown.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw new UsernameNotFoundException("User not found: " + username);
+            }
+            AppUser appUser = findByUsername(username);
+            if (appUser == null) {
+                unknownUsers.put(username, Boolean.TRUE);
+                loadUnknown.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw new UsernameNotFoundException("User not found: " + username);
+            }
+            cached = CachedUser.of(appUser);
+            knownUsers.put(username, cached);
+            timer = loadStored;
         }
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
 
-
-        GrantedAuthority authority = new SimpleGrantedAuthority("ROLE_" + appUser.getRole());
-        return User.withUsername(appUser.getUsername())
-                .password(appUser.getPasswordHash())
-                .authorities(List.of(authority))
+        // always a fresh User: the authentication manager erases credentials on the instance it gets back
+        return User.withUsername(cached.username())
+                .password(cached.passwordHash())
+                .authorities(cached.authorities())
                 .build();
     }
 
+    /**
+     * Drop cached login data for a user (after it was created or its password / role changed).
+     */
+    public void evict(String username) {
+        knownUsers.invalidate(username);
+        unknownUsers.invalidate(username);
+        // a login racing the transaction may re-cache the old state; evict again once it is visible
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    knownUsers.invalidate(username);
+                    unknownUsers.invalidate(username);
+                }
+            });
+        }
+    }
+
     // --- Register a new AppUser and return the saved entity ---
-    @Transactional
+    // Not @Transactional: the BCrypt hash takes tens of ms and must not hold a pooled connection.
+    // The lookup and the save (SimpleJpaRepository.save) each run in their own short transaction.
     public AppUser register(AppUser user) {
+        long start = System.nanoTime();
+        Timer timer = registerFailed;
+        try {
+            AppUser saved = doRegister(user);
+            timer = registerOk;
+            return saved;
+        } catch (IllegalArgumentException e) {
+            timer = registerExists;
+            throw e;
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private AppUser doRegister(AppUser user) {
         log.info("Registering new user '{}'", user.getUsername());
 
         // Basic uniqueness check
@@ -77,18 +171,32 @@ public class AppUserService implements UserDetailsService {
             }
         }
 
-// ... password hashing and role setting remain the same ...
+        // callers hand over the raw password; only the BCrypt hash is stored
+        // (runs on the bounded hashing executor, may throw PasswordHashingRejectedException)
+        user.setPasswordHash(passwordEncoder.encode(user.getPasswordHash()));
+        if (user.getRole() == null) user.setRole("USER");
 
         AppUser saved;
         if (users != null) {
-            saved = users.save(user);
+            try {
+                saved = users.save(user);
+            } catch (DataIntegrityViolationException e) {
+                // registered concurrently between the check and the save: the unique username decides
+                log.warn("Username '{}' already exists", user.getUsername());
+                throw new IllegalArgumentException("Username already exists");
+            }
         } else {
-            // in-memory save (do not call setId — AppUser has no setId(String))
-            inMemoryUsers.put(user.getUsername(), user);
+            // in-memory save: assign a local id so votes can be keyed on it
+            user.setId(inMemoryIds.incrementAndGet());
+            if (inMemoryUsers.putIfAbsent(user.getUsername(), user) != null) {
+                log.warn("Username '{}' already exists (in-memory)", user.getUsername());
+                throw new IllegalArgumentException("Username already exists");
+            }
             saved = user;
         }
 
 
+        evict(saved.getUsername());
         log.info("Registered user id={}, username={}", saved.getId(), saved.getUsername());
         return saved;
     }
@@ -96,7 +204,6 @@ public class AppUserService implements UserDetailsService {
     /**
      * Backwards-compatible method name used by controllers that call registerNewUser(...)
      */
-    @Transactional
     public AppUser registerNewUser(AppUser user) {
         return register(user);
     }
@@ -115,9 +222,44 @@ public class AppUserService implements UserDetailsService {
 
     }
 
+    /**
+     * Id of the given user, or null when unknown. Memoized: the vote endpoints call this on every click.
+     */
+    public Long userId(String username) {
+        if (username == null) return null;
+        Long id = userIds.get(username);
+        if (id != null) return id;
+        AppUser user = findByUsername(username);
+        if (user == null || user.getId() == null) return null;
+        userIds.put(username, user.getId());
+        return user.getId();
+    }
+
+    // --- Change the role of an existing user ---
+    @Transactional
+    public AppUser changeRole(String username, String role) {
+        AppUser user = findByUsername(username);
+        if (user == null) throw new UsernameNotFoundException("User not found: " + username);
+        user.setRole(role);
+        if (users != null) {
+            user = users.save(user);
+        }
+        evict(username);
+        log.info("Changed role of '{}' to {}", username, role);
+        return user;
+    }
+
     // --- OIDC helper: create or update a user coming from Google (or other provider) ---
     @Transactional
     public void createOrUpdateFromOidc(String email, OidcUser oidcUser) {
+        long start = System.nanoTime();
+        // known user: nothing to create, skip the lookup entirely
+        if (knownUsers.getIfPresent(email) != null) {
+            log.debug("OIDC user processed (cached): {}", email);
+            oidcCached.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return;
+        }
+
         AppUser user = null;
         if (users != null) {
             user = users.findByUsername(email)
@@ -134,12 +276,23 @@ public class AppUserService implements UserDetailsService {
                 newUser.setUsername(e);
                 newUser.setRole("USER");
                 newUser.setPasswordHash("");
-                // no id setter available — leave id as-is
+                newUser.setId(inMemoryIds.incrementAndGet());
                 return newUser;
 
             });
         }
+        evict(email);
+        knownUsers.put(email, CachedUser.of(user));
         log.debug("OIDC user processed: {}", email);
+        oidcStored.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
 
     }
+
+    // immutable login view of an AppUser; authorities are built once per cache fill
+    private record CachedUser(String username, String passwordHash, List<GrantedAuthority> authorities) {
+        static CachedUser of(AppUser u) {
+            return new CachedUser(u.getUsername(), u.getPasswordHash(),
+                    List.of(new SimpleGrantedAuthority("ROLE_" + u.getRole())));
+        }
+    }
 }
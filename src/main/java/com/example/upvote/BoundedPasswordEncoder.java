@@ -0,0 +1,171 @@
+package com.example.upvote;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * BoundedPasswordEncoder:
+ * - runs BCrypt on a small dedicated pool instead of the request threads
+ * - at most threads + queue-size jobs admitted; anything beyond is rejected at once (429)
+ * - logins (matches) are served before registrations (encode)
+ * - identical verifications already in flight share one result; they are matched on a salted SHA-256 of
+ *   (raw, encoded), so no plaintext password is kept as a map key
+ * - upvote.password.hash / upvote.password.verify timers, upvote.password.rejected counter
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final int PRIORITY_VERIFY = 0;
+    private static final int PRIORITY_HASH = 1;
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final Semaphore admitted;
+    private final long timeoutMs;
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentMap<VerifyKey, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+    // per instance, so the in-flight keys cannot be matched against precomputed digests
+    private final byte[] keySalt = new byte[16];
+
+    private final Timer hashTimer;
+    private final Timer verifyTimer;
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueSize, long timeoutMs,
+                                  MeterRegistry registry) {
+        this.delegate = delegate;
+        this.timeoutMs = timeoutMs;
+        this.admitted = new Semaphore(threads + queueSize);
+        new SecureRandom().nextBytes(keySalt);
+
+        AtomicInteger n = new AtomicInteger();
+        // tasks are Comparable, so the priority queue orders them; admission is bounded by the semaphore
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "bcrypt-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+
+        this.hashTimer = Timer.builder("upvote.password.hash").register(registry);
+        this.verifyTimer = Timer.builder("upvote.password.verify").register(registry);
+        this.rejected = Counter.builder("upvote.password.rejected").register(registry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        submit(PRIORITY_HASH, () -> delegate.encode(rawPassword), hashTimer, result);
+        return await(result);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        VerifyKey key = verifyKey(rawPassword, encodedPassword);
+        CompletableFuture<Boolean> mine = new CompletableFuture<>();
+        CompletableFuture<Boolean> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) return await(existing);
+
+        mine.whenComplete((r, e) -> inFlight.remove(key, mine));
+        submit(PRIORITY_VERIFY, () -> delegate.matches(rawPassword, encodedPassword), verifyTimer, mine);
+        return await(mine);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // -------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------
+
+    private <T> void submit(int priority, Supplier<T> work, Timer timer, CompletableFuture<T> result) {
+        if (!admitted.tryAcquire()) {
+            rejected.increment();
+            result.completeExceptionally(new PasswordHashingRejectedException("Password hashing is saturated"));
+            return;
+        }
+        executor.execute(new Task(priority, sequence.incrementAndGet(), () -> {
+            try {
+                result.complete(timer.record(work));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            } finally {
+                admitted.release();
+            }
+        }));
+    }
+
+    private <T> T await(CompletableFuture<T> result) {
+        try {
+            return result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            rejected.increment();
+            throw new PasswordHashingRejectedException("Password hashing timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingRejectedException("Interrupted while hashing");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private VerifyKey verifyKey(CharSequence raw, String encoded) {
+        MessageDigest sha;
+        try {
+            sha = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JRE ships SHA-256
+        }
+        sha.update(keySalt);
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(raw));
+        sha.update(bytes.duplicate());
+        if (bytes.hasArray()) Arrays.fill(bytes.array(), (byte) 0);
+        sha.update((byte) 0);
+        sha.update(String.valueOf(encoded).getBytes(StandardCharsets.UTF_8));
+        return new VerifyKey(ByteBuffer.wrap(sha.digest()));
+    }
+
+    // ByteBuffer: equals and hashCode by content
+    private record VerifyKey(ByteBuffer digest) {}
+
+    private record Task(int priority, long seq, Runnable body) implements Runnable, Comparable<Task> {
+        @Override
+        public void run() {
+            body.run();
+        }
+
+        @Override
+        public int compareTo(Task o) {
+            int c = Integer.compare(priority, o.priority);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+}
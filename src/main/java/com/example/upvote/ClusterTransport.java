@@ -0,0 +1,19 @@
+package com.example.upvote;
+
+import java.util.function.Consumer;
+
+/**
+ * How CounterReplicator reaches the other nodes (upvote.cluster.transport):
+ * - loopback (default): LoopbackTransport, nodes in one JVM (tests, local experiments)
+ * - http:               HttpClusterTransport, POSTs to upvote.cluster.peers
+ * Delivery is best effort: batches may be lost, repeated or reordered (CounterDeltas merge by max,
+ * and anti-entropy resends full state).
+ */
+public interface ClusterTransport {
+
+    /** Hand a batch to every other node. Must not block the caller for long. */
+    void send(CounterDeltas deltas);
+
+    /** Where batches from the other nodes go; set once, before the first send. */
+    void onReceive(Consumer<CounterDeltas> receiver);
+}
@@ -0,0 +1,97 @@
+package com.example.upvote;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * ConflictRetry: bounded, jittered retry of optimistic Post writes (title edits, deletes).
+ * - an attempt is a whole read-check-write; when its write loses the version race
+ *   (OptimisticLockingFailureException, i.e. a translated JPA OptimisticLockException) it is
+ *   run again after a full-jitter backoff: random(0, backoff-ms * 2^attempt)
+ * - after upvote.conflict.max-attempts the fallback answers instead (409 with the current post)
+ * - metrics, per op: "upvote.post.writes" counts writes, "upvote.post.conflicts" counts conflicts by
+ *   outcome: retried, exhausted, or stale (the client's version was already outdated, never retried).
+ *   conflicts / writes is the conflict rate of a hot row, the number to watch before reaching for
+ *   pessimistic locks.
+ */
+@Component
+public class ConflictRetry {
+
+    static final String WRITES = "upvote.post.writes";
+    static final String CONFLICTS = "upvote.post.conflicts";
+
+    private final MeterRegistry registry;
+    private final int maxAttempts;
+    private final long backoffMs;
+
+    // op -> {writes, retried, exhausted, stale}
+    private final Map<String, Counter[]> counters = new ConcurrentHashMap<>();
+
+    public ConflictRetry(MeterRegistry registry,
+                         @Value("${upvote.conflict.max-attempts:4}") int maxAttempts,
+                         @Value("${upvote.conflict.backoff-ms:5}") long backoffMs) {
+        this.registry = registry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = Math.max(1, backoffMs);
+    }
+
+    /** Run attempt until it gets through without a version conflict, at most max-attempts times. */
+    public <T> T run(String op, Supplier<T> attempt, Supplier<T> exhausted) {
+        Counter[] c = counters(op);
+        c[0].increment();
+        for (int n = 0; ; n++) {
+            try {
+                return attempt.get();
+            } catch (OptimisticLockingFailureException e) {
+                if (n + 1 >= maxAttempts || !backoff(n)) {
+                    c[2].increment();
+                    return exhausted.get();
+                }
+                c[1].increment();
+            }
+        }
+    }
+
+    /** Record a write refused up front because the client sent an outdated version. */
+    public void stale(String op) {
+        counters(op)[3].increment();
+    }
+
+    // -------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------
+
+    // false when interrupted: give up instead of retrying
+    private boolean backoff(int attempt) {
+        long ceiling = backoffMs << Math.min(attempt, 10);
+        try {
+            TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Counter[] counters(String op) {
+        return counters.computeIfAbsent(op, o -> new Counter[]{
+                Counter.builder(WRITES).tag("op", o).register(registry),
+                conflicts(o, "retried"),
+                conflicts(o, "exhausted"),
+                conflicts(o, "stale")
+        });
+    }
+
+    private Counter conflicts(String op, String outcome) {
+        return Counter.builder(CONFLICTS).tag("op", op).tag("outcome", outcome).register(registry);
+    }
+}
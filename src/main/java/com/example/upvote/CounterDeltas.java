@@ -0,0 +1,52 @@
+package com.example.upvote;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delta-state batch exchanged between nodes (CounterReplicator): PN-counter slot states grouped by
+ * slot id, each as flat (postId, p, n) triples. States are absolute and merged by max, so a batch
+ * applied twice, late or out of order changes nothing; a lost one is repaired by the next anti-entropy pass.
+ */
+public record CounterDeltas(String from, Map<String, long[]> slots) {
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return slots == null || slots.isEmpty();
+    }
+
+    /** Accumulates slot states into per-slot triples. */
+    static final class Builder {
+        private final String from;
+        private final Map<String, List<Long>> slots = new HashMap<>();
+        private int size;
+
+        Builder(String from) {
+            this.from = from;
+        }
+
+        Builder add(long postId, PnCounter.Slot slot) {
+            List<Long> triples = slots.computeIfAbsent(slot.node(), k -> new ArrayList<>());
+            triples.add(postId);
+            triples.add(slot.p());
+            triples.add(slot.n());
+            size++;
+            return this;
+        }
+
+        /** Slot states added so far. */
+        int size() {
+            return size;
+        }
+
+        CounterDeltas build() {
+            Map<String, long[]> out = new HashMap<>(slots.size());
+            slots.forEach((node, triples) -> out.put(node, triples.stream().mapToLong(Long::longValue).toArray()));
+            return new CounterDeltas(from, out);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.upvote;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * CounterReplicator (upvote.cluster.enabled=true): keeps the replicated VoteCounters of all nodes converging.
+ * - every upvote.cluster.gossip-interval-ms: this node's slots flushed since the last pass, as one CounterDeltas
+ *   batch (votes travel after the database has them, so a restarted node never finds its peers ahead of it)
+ * - every upvote.cluster.anti-entropy-interval-ms: every slot of every post in memory, in chunks
+ *   (repairs lost batches; a node that just started learns what its peers have not flushed yet)
+ * - batches from the other nodes are merged into VoteCounter; posts whose count moved are re-ranked
+ *   and pushed to /posts/stream like a local vote
+ * No locks across nodes: a node only ever advances its own slot.
+ */
+@Component
+@ConditionalOnProperty(name = "upvote.cluster.enabled", havingValue = "true")
+public class CounterReplicator {
+
+    private static final Logger log = LoggerFactory.getLogger(CounterReplicator.class);
+
+    static final int SNAPSHOT_CHUNK = 1000;
+
+    private final VoteCounter counter;
+    private final ClusterTransport transport;
+    private final Leaderboard leaderboard;
+    private final HotRanker hotRanker;
+    private final PostEvents events;
+    private final PostChangeLog changes;
+
+    public CounterReplicator(VoteCounter counter, Optional<ClusterTransport> transport,
+                             Leaderboard leaderboard, HotRanker hotRanker, PostEvents events,
+                             PostChangeLog changes) {
+        this.counter = counter;
+        this.transport = transport.orElseGet(() -> {
+            log.warn("No upvote.cluster.transport configured: loopback only, this node replicates to nobody");
+            return new LoopbackTransport();
+        });
+        this.leaderboard = leaderboard;
+        this.hotRanker = hotRanker;
+        this.events = events;
+        this.changes = changes;
+        this.transport.onReceive(this::receive);
+        log.info("Replicated vote counters, slot {}", counter.slot());
+    }
+
+    @Scheduled(fixedDelayString = "${upvote.cluster.gossip-interval-ms:100}")
+    public void gossip() {
+        CounterDeltas deltas = counter.unsent();
+        if (!deltas.isEmpty()) transport.send(deltas);
+    }
+
+    @Scheduled(fixedDelayString = "${upvote.cluster.anti-entropy-interval-ms:30000}")
+    public void antiEntropy() {
+        counter.snapshot(SNAPSHOT_CHUNK, transport::send);
+    }
+
+    void receive(CounterDeltas deltas) {
+        Map<Long, Long> moved = counter.merge(deltas);
+        moved.forEach((id, count) -> {
+            leaderboard.touch(id);
+            hotRanker.markActive(id);
+            events.countChanged(id, count);
+            changes.changed(id);
+        });
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.upvote;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EndpointMetrics: timer "upvote.posts.requests" around every /posts endpoint, tagged
+ * - endpoint: the handler method name (fixed set)
+ * - outcome:  ok / not_found / unavailable / unauthorized / rejected / client_error / error
+ * Timers are registered once per endpoint and looked up by handler method, so recording is
+ * one map read and one nanoTime pair per request (no tag building, no Timer.Sample).
+ * Async handlers (stream, export) are timed until the response completes.
+ * Requests RateLimitFilter turns away never reach a handler; the filter reports them (rejected),
+ * under the endpoint name of the handler they were meant for.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class EndpointMetrics implements HandlerInterceptor, WebMvcConfigurer {
+
+    static final String TIMER = "upvote.posts.requests";
+    private static final String START = EndpointMetrics.class.getName() + ".start";
+
+    enum Outcome {
+        OK("ok"), NOT_FOUND("not_found"), UNAVAILABLE("unavailable"), UNAUTHORIZED("unauthorized"),
+        REJECTED("rejected"), CLIENT_ERROR("client_error"), ERROR("error");
+
+        final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+
+        static Outcome of(int status, Exception ex) {
+            if (ex != null || status >= 500 && status != 503) return ERROR;
+            if (status < 400) return OK;
+            return switch (status) {
+                case 404 -> NOT_FOUND;
+                case 503 -> UNAVAILABLE;
+                case 401, 403 -> UNAUTHORIZED;
+                case 429 -> REJECTED;
+                default -> CLIENT_ERROR;
+            };
+        }
+    }
+
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    private final MeterRegistry registry;
+    // handler method -> timer per outcome (by ordinal)
+    private final ConcurrentMap<Method, Timer[]> timers = new ConcurrentHashMap<>();
+    // endpoint name -> outcome=rejected timer, for requests stopped before the handler
+    private final ConcurrentMap<String, Timer> rejected = new ConcurrentHashMap<>();
+
+    public EndpointMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry interceptors) {
+        interceptors.addInterceptor(this).addPathPatterns("/posts", "/posts/**");
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // an async request comes through again when it completes; keep the original start
+        if (handler instanceof HandlerMethod && request.getAttribute(START) == null) {
+            request.setAttribute(START, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (!(handler instanceof HandlerMethod method) || !(request.getAttribute(START) instanceof Long start)) return;
+        Timer[] byOutcome = timers.get(method.getMethod());
+        if (byOutcome == null) byOutcome = timers.computeIfAbsent(method.getMethod(), this::register);
+        byOutcome[Outcome.of(response.getStatus(), ex).ordinal()]
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /** A request to the given endpoint (handler method name) was rejected before reaching it. */
+    public void rejected(String endpoint, long nanos) {
+        Timer timer = rejected.get(endpoint);
+        if (timer == null) timer = rejected.computeIfAbsent(endpoint, e -> timer(e, Outcome.REJECTED));
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer[] register(Method method) {
+        Timer[] byOutcome = new Timer[OUTCOMES.length];
+        for (Outcome o : OUTCOMES) byOutcome[o.ordinal()] = timer(method.getName(), o);
+        return byOutcome;
+    }
+
+    // the registry hands back the same Timer for the same tags, whichever path registers it first
+    private Timer timer(String endpoint, Outcome outcome) {
+        return Timer.builder(TIMER)
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome.tag)
+                .register(registry);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.upvote;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * HotRanker:
+ * - maintains Post.hotScore = upvotes / (ageHours + 2)^gravity in bulk PostStore batches
+ * - active pass (every few seconds): only posts voted on since the previous pass
+ * - decay pass (every few minutes): every post younger than the window, since scores fall with age,
+ *   read and written CHUNK posts at a time in (createdAt, id) order
+ * - posts older than the window drop to 0, so GET /posts?sort=hot stays an index scan
+ */
+@Component
+public class HotRanker {
+
+    private static final Logger log = LoggerFactory.getLogger(HotRanker.class);
+
+    private static final int CHUNK = 500;
+
+    private final PostStore store;
+    private final VoteCounter counter;
+    private final PostChangeLog changes;
+    private final double gravity;
+    private final Duration window;
+
+    // posts whose count changed since the last active pass
+    private final Set<Long> active = ConcurrentHashMap.newKeySet();
+
+    public HotRanker(PostStore store, VoteCounter counter, PostChangeLog changes,
+                     @Value("${upvote.hot.gravity:1.8}") double gravity,
+                     @Value("${upvote.hot.window-hours:72}") long windowHours) {
+        this.store = store;
+        this.counter = counter;
+        this.changes = changes;
+        this.gravity = gravity;
+        this.window = Duration.ofHours(windowHours);
+    }
+
+    /** Called from the vote paths; the score is refreshed by the next active pass. */
+    public void markActive(long postId) {
+        active.add(postId);
+    }
+
+    @Scheduled(fixedDelayString = "${upvote.hot.active-interval-ms:5000}")
+    public void scoreActive() {
+        if (!store.isAvailable() || active.isEmpty()) return;
+
+        List<Long> ids = new ArrayList<>(active);
+        active.removeAll(ids);
+
+        Instant now = Instant.now();
+        for (int i = 0; i < ids.size(); i += CHUNK) {
+            List<Long> chunk = ids.subList(i, Math.min(ids.size(), i + CHUNK));
+            try {
+                write(store.ages(chunk), now);
+            } catch (RuntimeException ex) {
+                active.addAll(chunk); // retry on the next pass
+                log.warn("Hot score pass failed for {} posts: {}", chunk.size(), ex.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${upvote.hot.decay-interval-ms:300000}")
+    public void decay() {
+        if (!store.isAvailable()) return;
+
+        Instant now = Instant.now();
+        Instant cutoff = now.minus(window);
+        int expired = store.expireHotScores(cutoff);
+        int scored = 0;
+        // in pages of CHUNK, so a busy window is never one result set in memory
+        List<PostAge> page = store.createdAfter(cutoff, Long.MAX_VALUE, CHUNK);
+        while (!page.isEmpty()) {
+            scored += write(page, now);
+            if (page.size() < CHUNK) break;
+            PostAge last = page.get(page.size() - 1);
+            page = store.createdAfter(last.getCreatedAt(), last.getId(), CHUNK);
+        }
+        if (expired > 0) changes.bump();
+        log.debug("Hot decay pass: {} scored, {} expired", scored, expired);
+    }
+
+    // -------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------
+
+    double score(long upvotes, Instant createdAt, Instant now) {
+        if (createdAt == null || createdAt.isBefore(now.minus(window))) return 0;
+        double ageHours = Math.max(0, Duration.between(createdAt, now).toMillis() / 3_600_000.0);
+        return upvotes / Math.pow(ageHours + 2, gravity);
+    }
+
+    private int write(List<PostAge> posts, Instant now) {
+        if (posts.isEmpty()) return 0;
+        Map<Long, Double> batch = new HashMap<>(posts.size() * 2);
+        for (PostAge p : posts) {
+            // the row lags the live count by up to one counter flush, so prefer the in-memory value
+            OptionalLong live = counter.peek(p.getId());
+            long upvotes = live.isPresent() ? live.getAsLong() : p.getUpvotes();
+            batch.put(p.getId(), score(upvotes, p.getCreatedAt(), now));
+        }
+        store.updateHotScores(batch);
+        changes.bump(); // hot listings were reordered
+        return batch.size();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.upvote;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * ClusterTransport over HTTP (upvote.cluster.transport=http):
+ * - send: one JSON body, POSTed asynchronously to /cluster/deltas of every upvote.cluster.peers entry
+ *   (e.g. http://node-b:8081); failures are only logged, anti-entropy repairs them
+ * - receive: the POST /cluster/deltas endpoint below, guarded by the shared upvote.cluster.secret
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "upvote.cluster.transport", havingValue = "http")
+public class HttpClusterTransport implements ClusterTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(HttpClusterTransport.class);
+
+    static final String PATH = "/cluster/deltas";
+    static final String SECRET_HEADER = "X-Cluster-Secret";
+
+    private final ObjectMapper mapper;
+    private final List<URI> peers;
+    private final String secret;
+    private final Duration timeout;
+    private final HttpClient client;
+    private volatile Consumer<CounterDeltas> receiver = deltas -> {};
+
+    public HttpClusterTransport(ObjectMapper mapper,
+                                @Value("${upvote.cluster.peers:}") String peers,
+                                @Value("${upvote.cluster.secret:}") String secret,
+                                @Value("${upvote.cluster.timeout-ms:2000}") long timeoutMs) {
+        if (secret.isBlank()) throw new IllegalStateException("upvote.cluster.secret is required with upvote.cluster.transport=http");
+        this.mapper = mapper;
+        this.peers = Arrays.stream(peers.split(","))
+                .map(String::trim)
+                .filter(p -> !p.isEmpty())
+                .map(p -> URI.create(p.replaceAll("/+$", "") + PATH))
+                .toList();
+        this.secret = secret;
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+        log.info("Cluster transport: http to {} peer(s)", this.peers.size());
+    }
+
+    @Override
+    public void send(CounterDeltas deltas) {
+        byte[] body;
+        try {
+            body = mapper.writeValueAsBytes(deltas);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize counter deltas: {}", e.getMessage());
+            return;
+        }
+        for (URI peer : peers) {
+            HttpRequest request = HttpRequest.newBuilder(peer)
+                    .timeout(timeout)
+                    .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                    .header(SECRET_HEADER, secret)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                    .build();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error != null) log.debug("Counter deltas to {} failed: {}", peer, error.toString());
+                        else if (response.statusCode() >= 300) log.debug("Counter deltas to {} answered {}", peer, response.statusCode());
+                    });
+        }
+    }
+
+    @Override
+    public void onReceive(Consumer<CounterDeltas> receiver) {
+        this.receiver = receiver;
+    }
+
+    // POST /cluster/deltas  X-Cluster-Secret: ...  (from the other nodes' send)
+    @PostMapping(value = PATH, consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Void> receive(@RequestHeader(name = SECRET_HEADER, required = false) String presented,
+                                        @RequestBody CounterDeltas deltas) {
+        if (presented == null || !MessageDigest.isEqual(
+                presented.getBytes(StandardCharsets.UTF_8), secret.getBytes(StandardCharsets.UTF_8))) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        receiver.accept(deltas);
+        return ResponseEntity.accepted().build();
+    }
+}
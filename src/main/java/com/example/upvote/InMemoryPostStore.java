@@ -0,0 +1,315 @@
+package com.example.upvote;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * PostStore kept entirely in memory (upvote.store=memory), for DB-free nodes:
+ * - posts in a primitive long-keyed striped map, ids from an AtomicLong
+ * - atomic per-post counters; titles and versions change under the row lock
+ * - two skip-list indexes, (upvotes, id) and (hotScore, id), so keyset pages are
+ *   the same O(page) walk the relational indexes give
+ * Nothing survives a restart.
+ */
+@Component
+@ConditionalOnProperty(name = "upvote.store", havingValue = "memory")
+public class InMemoryPostStore implements PostStore {
+
+    private record Key(double key, long id) {}
+
+    private static final Comparator<Key> DESC = Comparator.comparingDouble(Key::key).reversed()
+            .thenComparing(Comparator.comparingLong(Key::id).reversed());
+    private static final Comparator<Row> BY_AGE = Comparator.<Row, Instant>comparing(r -> r.createdAt)
+            .thenComparingLong(r -> r.id);
+
+    private final StripedLongMap<Row> rows = new StripedLongMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final ConcurrentSkipListSet<Key> byUpvotes = new ConcurrentSkipListSet<>(DESC);
+    private final ConcurrentSkipListSet<Key> byHot = new ConcurrentSkipListSet<>(DESC);
+    // replicated counters: postId -> node -> {p, n}, changed under the row lock
+    private final StripedLongMap<Map<String, long[]>> slots = new StripedLongMap<>();
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public Optional<Post> findById(long id) {
+        Row row = rows.get(id);
+        return row == null ? Optional.empty() : Optional.of(row.toPost());
+    }
+
+    @Override
+    public Post save(Post post) {
+        Instant createdAt = post.getCreatedAt() != null ? post.getCreatedAt() : Instant.now();
+        Row row = new Row(ids.incrementAndGet(), post.getTitle(), post.getUpvotes(), createdAt);
+        rows.put(row.id, row);
+        byUpvotes.add(new Key(row.upvotes.get(), row.id));
+        byHot.add(new Key(0, row.id));
+        return row.toPost();
+    }
+
+    @Override
+    public List<Post> saveAll(List<Post> posts) {
+        List<Post> out = new ArrayList<>(posts.size());
+        for (Post p : posts) out.add(save(p));
+        return out;
+    }
+
+    @Override
+    public boolean delete(long id) {
+        Row row = rows.remove(id);
+        if (row == null) return false;
+        synchronized (row) {
+            byUpvotes.remove(new Key(row.upvotes.get(), id));
+            byHot.remove(new Key(row.hotScore, id));
+            slots.remove(id);
+        }
+        return true;
+    }
+
+    @Override
+    public Optional<Post> updateTitle(long id, String title, long version) {
+        Row row = rows.get(id);
+        if (row == null) return Optional.empty();
+        synchronized (row) {
+            if (rows.get(id) != row) return Optional.empty(); // deleted meanwhile
+            checkVersion(row, version);
+            row.title = title;
+            row.version++;
+            return Optional.of(row.toPost());
+        }
+    }
+
+    @Override
+    public boolean delete(long id, long version) {
+        Row row = rows.get(id);
+        if (row == null) return false;
+        synchronized (row) {
+            if (rows.get(id) != row) return false;
+            checkVersion(row, version);
+            rows.remove(id);
+            byUpvotes.remove(new Key(row.upvotes.get(), id));
+            byHot.remove(new Key(row.hotScore, id));
+            slots.remove(id);
+        }
+        return true;
+    }
+
+    private static void checkVersion(Row row, long version) {
+        if (row.version != version) {
+            throw new OptimisticLockingFailureException("Post " + row.id + " is at version " + row.version + ", not " + version);
+        }
+    }
+
+    @Override
+    public List<Post> page(Sort sort, PostPage.Cursor after, int limit) {
+        NavigableSet<Key> index = sort == Sort.HOT ? byHot : byUpvotes;
+        NavigableSet<Key> from = after == null ? index : index.tailSet(new Key(after.key(), after.id()), false);
+        List<Post> out = new ArrayList<>(limit);
+        for (Key k : from) {
+            if (out.size() >= limit) break;
+            Row row = rows.get(k.id());
+            if (row == null) continue;
+            // report the indexed key so the next cursor continues from exactly this position
+            Post p = row.toPost();
+            if (sort == Sort.TOP) p.setUpvotes((int) k.key());
+            out.add(p);
+        }
+        return out;
+    }
+
+    @Override
+    public void forEach(Consumer<PostSummary> action) {
+        rows.forEachValue(action::accept);
+    }
+
+    @Override
+    public void addUpvotes(Map<Long, Long> deltas) {
+        deltas.forEach((id, delta) -> {
+            Row row = rows.get(id);
+            if (row == null) return;
+            synchronized (row) {
+                if (rows.get(id) != row) return; // deleted meanwhile
+                byUpvotes.remove(new Key(row.upvotes.get(), id));
+                byUpvotes.add(new Key(row.upvotes.addAndGet((int) (long) delta), id));
+            }
+        });
+    }
+
+    @Override
+    public OptionalLong incrementUpvotes(long id) {
+        return adjust(id, 1);
+    }
+
+    @Override
+    public OptionalLong decrementUpvotesFloorZero(long id) {
+        return adjust(id, -1);
+    }
+
+    // one vote under the row lock, floored at zero; empty when the post is gone
+    private OptionalLong adjust(long id, int delta) {
+        Row row = rows.get(id);
+        if (row == null) return OptionalLong.empty();
+        synchronized (row) {
+            if (rows.get(id) != row) return OptionalLong.empty(); // deleted meanwhile
+            int before = row.upvotes.get();
+            int after = Math.max(0, before + delta);
+            if (after != before) {
+                byUpvotes.remove(new Key(before, id));
+                row.upvotes.set(after);
+                byUpvotes.add(new Key(after, id));
+            }
+            return OptionalLong.of(after);
+        }
+    }
+
+    @Override
+    public List<CounterState> counterStates(Collection<Long> ids) {
+        List<CounterState> out = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Row row = rows.get(id);
+            if (row == null) continue;
+            synchronized (row) {
+                if (rows.get(id) != row) continue;
+                List<PnCounter.Slot> state = new ArrayList<>();
+                Map<String, long[]> bySlot = slots.get(id);
+                if (bySlot != null) bySlot.forEach((node, s) -> state.add(new PnCounter.Slot(node, s[0], s[1])));
+                out.add(new CounterState(id, row.upvotes.get(), state));
+            }
+        }
+        return out;
+    }
+
+    // per post under its row lock, which is all the atomicity CounterState.base needs
+    @Override
+    public void saveSlots(String node, List<SlotWrite> writes) {
+        for (SlotWrite w : writes) {
+            Row row = rows.get(w.postId());
+            if (row == null) continue;
+            synchronized (row) {
+                if (rows.get(w.postId()) != row) continue;
+                byUpvotes.remove(new Key(row.upvotes.get(), w.postId()));
+                byUpvotes.add(new Key(row.upvotes.addAndGet((int) w.delta()), w.postId()));
+                Map<String, long[]> bySlot = slots.get(w.postId());
+                if (bySlot == null) {
+                    bySlot = new HashMap<>();
+                    slots.put(w.postId(), bySlot);
+                }
+                bySlot.put(node, new long[]{w.p(), w.n()});
+            }
+        }
+    }
+
+    @Override
+    public List<PostAge> ages(Collection<Long> ids) {
+        List<PostAge> out = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Row row = rows.get(id);
+            if (row != null) out.add(row);
+        }
+        return out;
+    }
+
+    @Override
+    public List<PostAge> createdAfter(Instant since, long afterId, int limit) {
+        // no index by age here: one scan per page, keeping the first limit rows in (createdAt, id) order
+        PriorityQueue<Row> page = new PriorityQueue<>(BY_AGE.reversed());
+        rows.forEachValue(row -> {
+            int c = row.createdAt.compareTo(since);
+            if (c < 0 || (c == 0 && row.id <= afterId)) return;
+            page.add(row);
+            if (page.size() > limit) page.poll();
+        });
+        List<Row> sorted = new ArrayList<>(page);
+        sorted.sort(BY_AGE);
+        return new ArrayList<>(sorted);
+    }
+
+    @Override
+    public void updateHotScores(Map<Long, Double> scores) {
+        scores.forEach(this::setHotScore);
+    }
+
+    @Override
+    public int expireHotScores(Instant cutoff) {
+        List<Long> expired = new ArrayList<>();
+        rows.forEachValue(row -> {
+            if (row.createdAt.isBefore(cutoff) && row.hotScore != 0) expired.add(row.id);
+        });
+        expired.forEach(id -> setHotScore(id, 0.0));
+        return expired.size();
+    }
+
+    private void setHotScore(long id, double score) {
+        Row row = rows.get(id);
+        if (row == null) return;
+        synchronized (row) {
+            if (rows.get(id) != row) return; // deleted meanwhile
+            byHot.remove(new Key(row.hotScore, id));
+            row.hotScore = score;
+            byHot.add(new Key(score, id));
+        }
+    }
+
+    // -------------------------------------------------------
+    // Stored post: also serves as its own PostSummary / PostAge view
+    // -------------------------------------------------------
+    private static final class Row implements PostSummary, PostAge {
+        final long id;
+        volatile String title;
+        final AtomicInteger upvotes;
+        final Instant createdAt;
+        volatile double hotScore;
+        volatile long version;
+
+        Row(long id, String title, int upvotes, Instant createdAt) {
+            this.id = id;
+            this.title = title;
+            this.upvotes = new AtomicInteger(upvotes);
+            this.createdAt = createdAt;
+        }
+
+        Post toPost() {
+            return Post.restore(id, title, upvotes.get(), createdAt, hotScore, version);
+        }
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getTitle() {
+            return title;
+        }
+
+        @Override
+        public int getUpvotes() {
+            return upvotes.get();
+        }
+
+        @Override
+        public Instant getCreatedAt() {
+            return createdAt;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.upvote;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * PostStore on the relational post table: PostRepository for reads and inserts,
+ * plain JDBC batches for the bulk counter and score writes.
+ * Repository calls are timed by Spring Data's own metric (spring.data.repository.invocations);
+ * the JDBC batches, which bypass it, by "upvote.store.batch" tagged with the operation.
+ */
+@Component
+@ConditionalOnProperty(name = "upvote.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaPostStore implements PostStore {
+
+    static final String ADD_UPVOTES_SQL = "UPDATE post SET upvotes = upvotes + ? WHERE id = ?";
+    static final String SCORE_SQL = "UPDATE post SET hot_score = ? WHERE id = ?";
+    static final String INSERT_SQL = "INSERT INTO post (title, upvotes, created_at, hot_score, version) VALUES (?, ?, ?, 0, 0)";
+    static final String EXPIRE_SQL = "UPDATE post SET hot_score = 0 WHERE created_at < ? AND hot_score <> 0";
+    // one statement, so the count and the slots come from the same snapshot (see CounterState.base)
+    static final String COUNTER_STATE_SQL = "SELECT p.id, p.upvotes, s.node, s.p, s.n FROM post p"
+            + " LEFT JOIN post_counter_slot s ON s.post_id = p.id WHERE p.id IN (%s)";
+    // a slot of a post deleted meanwhile is not created
+    static final String SLOT_INSERT_SQL = "INSERT INTO post_counter_slot (post_id, node, p, n) SELECT id, ?, ?, ? FROM post WHERE id = ?";
+    static final String SLOT_UPDATE_SQL = "UPDATE post_counter_slot SET p = ?, n = ? WHERE post_id = ? AND node = ?";
+    static final String SLOT_DELETE_SQL = "DELETE FROM post_counter_slot WHERE post_id = ?";
+    private static final int IN_CHUNK = 500;
+
+    // repository / jdbc may be unavailable (DB auto-configuration excluded)
+    private final Optional<PostRepository> repoOpt;
+    private final Optional<JdbcTemplate> jdbcOpt;
+
+    private final Timer addUpvotesTimer;
+    private final Timer scoresTimer;
+    private final Timer insertTimer;
+    private final Timer slotsTimer;
+
+    public JpaPostStore(Optional<PostRepository> repoOpt, Optional<JdbcTemplate> jdbcOpt, MeterRegistry registry) {
+        this.repoOpt = repoOpt;
+        this.jdbcOpt = jdbcOpt;
+        this.addUpvotesTimer = Timer.builder("upvote.store.batch").tag("op", "add_upvotes").register(registry);
+        this.scoresTimer = Timer.builder("upvote.store.batch").tag("op", "hot_scores").register(registry);
+        this.insertTimer = Timer.builder("upvote.store.batch").tag("op", "insert").register(registry);
+        this.slotsTimer = Timer.builder("upvote.store.batch").tag("op", "counter_slots").register(registry);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return repoOpt.isPresent();
+    }
+
+    @Override
+    public Optional<Post> findById(long id) {
+        return repoOpt.flatMap(r -> r.findById(id)).map(Post::copy);
+    }
+
+    @Override
+    public Post save(Post post) {
+        return repo().save(post).copy();
+    }
+
+    // IDENTITY ids keep Hibernate from batching inserts, so bulk inserts go through one JDBC batch
+    @Override
+    public List<Post> saveAll(List<Post> posts) {
+        if (posts.isEmpty()) return List.of();
+        JdbcTemplate jdbc = jdbcOpt.orElseThrow(() -> new IllegalStateException("No repository available"));
+
+        Instant now = Instant.now();
+        List<Post> rows = posts.stream()
+                .map(p -> Post.restore(null, p.getTitle(), p.getUpvotes(),
+                        p.getCreatedAt() != null ? p.getCreatedAt() : now, 0))
+                .toList();
+        KeyHolder keys = new GeneratedKeyHolder();
+        long start = System.nanoTime();
+        jdbc.batchUpdate(con -> con.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Post p = rows.get(i);
+                        ps.setString(1, p.getTitle());
+                        ps.setInt(2, p.getUpvotes());
+                        ps.setTimestamp(3, Timestamp.from(p.getCreatedAt()));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                }, keys);
+        insertTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        // key column naming differs per driver (GENERATED_KEY on MySQL, ID on H2): take the only value
+        List<Map<String, Object>> ids = keys.getKeyList();
+        List<Post> saved = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Post p = rows.get(i);
+            long id = ((Number) ids.get(i).values().iterator().next()).longValue();
+            saved.add(Post.restore(id, p.getTitle(), p.getUpvotes(), p.getCreatedAt(), 0));
+        }
+        return saved;
+    }
+
+    @Override
+    public boolean delete(long id) {
+        PostRepository repo = repo();
+        if (!repo.existsById(id)) return false;
+        repo.deleteById(id);
+        deleteSlots(id);
+        return true;
+    }
+
+    // the version is checked twice: against the caller's here, and by Hibernate's
+    // "... WHERE id = ? AND version = ?" at flush, which catches a writer committing in between
+    @Override
+    @Transactional
+    public Optional<Post> updateTitle(long id, String title, long version) {
+        PostRepository repo = repo();
+        Optional<Post> found = repo.findById(id);
+        if (found.isEmpty()) return Optional.empty();
+        Post post = checked(found.get(), version);
+        post.setTitle(title);
+        return Optional.of(repo.saveAndFlush(post).copy());
+    }
+
+    @Override
+    @Transactional
+    public boolean delete(long id, long version) {
+        PostRepository repo = repo();
+        Optional<Post> found = repo.findById(id);
+        if (found.isEmpty()) return false;
+        repo.delete(checked(found.get(), version));
+        repo.flush();
+        deleteSlots(id);
+        return true;
+    }
+
+    @Override
+    public List<Post> page(Sort sort, PostPage.Cursor after, int limit) {
+        PostRepository repo = repo();
+        Pageable page = PageRequest.of(0, limit);
+        List<Post> rows;
+        if (sort == Sort.HOT) {
+            rows = after == null
+                    ? repo.findAllByOrderByHotScoreDescIdDesc(page)
+                    : repo.findHotPageAfter(after.key(), after.id(), page);
+        } else {
+            rows = after == null
+                    ? repo.findAllByOrderByUpvotesDescIdDesc(page)
+                    : repo.findPageAfter((int) after.key(), after.id(), page);
+        }
+        return rows.stream().map(Post::copy).toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEach(Consumer<PostSummary> action) {
+        if (repoOpt.isEmpty()) return;
+        try (Stream<PostSummary> rows = repoOpt.get().streamAllBy()) {
+            rows.forEach(action);
+        }
+    }
+
+    @Override
+    public void addUpvotes(Map<Long, Long> deltas) {
+        batch(ADD_UPVOTES_SQL, deltas, addUpvotesTimer);
+    }
+
+    // the UPDATE holds the row lock until commit, so the re-select reads exactly this transaction's result
+    @Override
+    @Transactional
+    public OptionalLong incrementUpvotes(long id) {
+        PostRepository repo = repo();
+        if (repo.incrementUpvotes(id) == 0) return OptionalLong.empty();
+        return OptionalLong.of(repo.findUpvotesById(id));
+    }
+
+    @Override
+    @Transactional
+    public OptionalLong decrementUpvotesFloorZero(long id) {
+        PostRepository repo = repo();
+        if (repo.decrementUpvotesFloorZero(id) == 0) return OptionalLong.empty();
+        return OptionalLong.of(repo.findUpvotesById(id));
+    }
+
+    @Override
+    public List<CounterState> counterStates(Collection<Long> ids) {
+        if (ids.isEmpty() || jdbcOpt.isEmpty()) return List.of();
+        List<Long> all = new ArrayList<>(ids);
+        Map<Long, long[]> counts = new LinkedHashMap<>();
+        Map<Long, List<PnCounter.Slot>> slots = new HashMap<>();
+        for (int from = 0; from < all.size(); from += IN_CHUNK) {
+            List<Long> chunk = all.subList(from, Math.min(all.size(), from + IN_CHUNK));
+            String sql = String.format(COUNTER_STATE_SQL, String.join(",", Collections.nCopies(chunk.size(), "?")));
+            jdbcOpt.get().query(sql, rs -> {
+                long id = rs.getLong(1);
+                counts.putIfAbsent(id, new long[]{rs.getLong(2)});
+                String node = rs.getString(3);
+                if (node != null) {
+                    slots.computeIfAbsent(id, k -> new ArrayList<>()).add(new PnCounter.Slot(node, rs.getLong(4), rs.getLong(5)));
+                }
+            }, chunk.toArray());
+        }
+        List<CounterState> out = new ArrayList<>(counts.size());
+        counts.forEach((id, upvotes) -> out.add(new CounterState(id, upvotes[0], slots.getOrDefault(id, List.of()))));
+        return out;
+    }
+
+    @Override
+    @Transactional
+    public void saveSlots(String node, List<SlotWrite> writes) {
+        if (writes.isEmpty()) return;
+        JdbcTemplate jdbc = jdbcOpt.orElseThrow(() -> new IllegalStateException("No repository available"));
+        List<Object[]> deltas = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        for (SlotWrite w : writes) {
+            if (w.delta() != 0) deltas.add(new Object[]{w.delta(), w.postId()});
+            if (w.created()) inserts.add(new Object[]{node, w.p(), w.n(), w.postId()});
+            else updates.add(new Object[]{w.p(), w.n(), w.postId(), node});
+        }
+        long start = System.nanoTime();
+        if (!deltas.isEmpty()) jdbc.batchUpdate(ADD_UPVOTES_SQL, deltas);
+        if (!inserts.isEmpty()) jdbc.batchUpdate(SLOT_INSERT_SQL, inserts);
+        if (!updates.isEmpty()) jdbc.batchUpdate(SLOT_UPDATE_SQL, updates);
+        slotsTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public List<PostAge> ages(Collection<Long> ids) {
+        return repoOpt.map(r -> r.findByIdIn(ids)).orElse(List.of());
+    }
+
+    @Override
+    public List<PostAge> createdAfter(Instant since, long afterId, int limit) {
+        return repoOpt.map(r -> r.findCreatedAfter(since, afterId, PageRequest.of(0, limit))).orElse(List.of());
+    }
+
+    @Override
+    public void updateHotScores(Map<Long, Double> scores) {
+        batch(SCORE_SQL, scores, scoresTimer);
+    }
+
+    @Override
+    public int expireHotScores(Instant cutoff) {
+        return jdbcOpt.map(jdbc -> jdbc.update(EXPIRE_SQL, Timestamp.from(cutoff))).orElse(0);
+    }
+
+    // -------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------
+
+    // one JDBC batch of "UPDATE ... SET x = ? WHERE id = ?"
+    private void batch(String sql, Map<Long, ?> valuesById, Timer timer) {
+        if (valuesById.isEmpty() || jdbcOpt.isEmpty()) return;
+        List<Object[]> args = new ArrayList<>(valuesById.size());
+        valuesById.forEach((id, value) -> args.add(new Object[]{value, id}));
+        long start = System.nanoTime();
+        jdbcOpt.get().batchUpdate(sql, args);
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void deleteSlots(long id) {
+        jdbcOpt.ifPresent(jdbc -> jdbc.update(SLOT_DELETE_SQL, id));
+    }
+
+    private static Post checked(Post post, long version) {
+        if (post.getVersion() != version) throw new ObjectOptimisticLockingFailureException(Post.class, post.getId());
+        return post;
+    }
+
+    private PostRepository repo() {
+        return repoOpt.orElseThrow(() -> new IllegalStateException("No repository available"));
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.upvote;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Leaderboard:
+ * - every post ranked by (upvotes DESC, id DESC) in a concurrent skip list
+ * - kept current by PostController on create / vote / delete, so top(n) never scans the table
+ * - rebuilt once at startup from a single streaming query (StartupTasks), possibly while writes come in
+ */
+@Component
+public class Leaderboard {
+
+    private static final Logger log = LoggerFactory.getLogger(Leaderboard.class);
+
+    public record Entry(long id, String title, long upvotes) {}
+
+    private static final Comparator<Entry> RANK = Comparator.comparingLong(Entry::upvotes).reversed()
+            .thenComparing(Comparator.comparingLong(Entry::id).reversed());
+
+    private final PostStore store;
+    private final VoteCounter counter;
+
+    private final ConcurrentSkipListSet<Entry> ranked = new ConcurrentSkipListSet<>(RANK);
+    private final ConcurrentMap<Long, Entry> byId = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[64];
+    // posts removed while a rebuild runs; the rebuild may have read them before they went
+    private volatile Set<Long> removedDuringRebuild;
+
+    public Leaderboard(PostStore store, VoteCounter counter) {
+        this.store = store;
+        this.counter = counter;
+        for (int i = 0; i < locks.length; i++) locks[i] = new Object();
+    }
+
+    // -------------------------------------------------------
+    // Reads
+    // -------------------------------------------------------
+
+    /** Highest ranked n posts, O(n). */
+    public List<Entry> top(int n) {
+        List<Entry> out = new ArrayList<>(n);
+        for (Entry e : ranked) {
+            if (out.size() >= n) break;
+            // while an entry is being replaced both versions are in the set; only the current one counts
+            if (byId.get(e.id()) == e) out.add(e);
+        }
+        return out;
+    }
+
+    /** The post's current entry (title and live count), O(1); empty for unknown ids. */
+    public Optional<Entry> entry(long postId) {
+        return Optional.ofNullable(byId.get(postId));
+    }
+
+    // -------------------------------------------------------
+    // Incremental maintenance
+    // -------------------------------------------------------
+
+    public void put(Post post) {
+        if (post == null || post.getId() == null) return;
+        replace(post.getId(), post.getTitle(), live(post.getId(), post.getUpvotes()));
+    }
+
+    /** Re-rank a post after its count changed in VoteCounter. Unknown ids are ignored. */
+    public void touch(long postId) {
+        // read under the lock: a concurrent put (new title) or remove must not be undone by a stale entry
+        synchronized (lock(postId)) {
+            Entry current = byId.get(postId);
+            if (current == null) return;
+            swap(postId, current, current.title(), live(postId, current.upvotes()));
+        }
+    }
+
+    public void remove(long postId) {
+        synchronized (lock(postId)) {
+            Entry old = byId.remove(postId);
+            if (old != null) ranked.remove(old);
+        }
+        Set<Long> removed = removedDuringRebuild;
+        if (removed != null) removed.add(postId);
+    }
+
+    /** Load every post; entries already put by the write paths are newer than the scanned rows and are kept. */
+    public void rebuild() {
+        if (!store.isAvailable()) return;
+        long start = System.nanoTime();
+        removedDuringRebuild = ConcurrentHashMap.newKeySet();
+        try {
+            store.forEach(p -> {
+                if (!byId.containsKey(p.getId())) insertIfAbsent(p.getId(), p.getTitle(), live(p.getId(), p.getUpvotes()));
+            });
+        } finally {
+            Set<Long> removed = removedDuringRebuild;
+            removedDuringRebuild = null;
+            removed.forEach(this::remove);
+        }
+        log.info("Leaderboard rebuilt with {} posts in {} ms", byId.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // -------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------
+
+    // add the new entry, publish it, then drop the old one: readers never see the post missing
+    private void replace(long postId, String title, long upvotes) {
+        synchronized (lock(postId)) {
+            swap(postId, byId.get(postId), title, upvotes);
+        }
+    }
+
+    // lock(postId) held; old is the post's current entry, or null
+    private void swap(long postId, Entry old, String title, long upvotes) {
+        if (old != null && old.upvotes() == upvotes && Objects.equals(old.title(), title)) return;
+        Entry next = new Entry(postId, title, upvotes);
+        if (old != null && old.upvotes() == upvotes) {
+            // same rank key: the skip list treats them as equal, so swap in place
+            ranked.remove(old);
+            ranked.add(next);
+            byId.put(postId, next);
+            return;
+        }
+        ranked.add(next);
+        byId.put(postId, next);
+        if (old != null) ranked.remove(old);
+    }
+
+    private void insertIfAbsent(long postId, String title, long upvotes) {
+        synchronized (lock(postId)) {
+            if (byId.containsKey(postId)) return;
+            Entry next = new Entry(postId, title, upvotes);
+            ranked.add(next);
+            byId.put(postId, next);
+        }
+    }
+
+    private long live(long postId, long persisted) {
+        OptionalLong c = counter.peek(postId);
+        return c.isPresent() ? c.getAsLong() : persisted;
+    }
+
+    private Object lock(long postId) {
+        return locks[(int) (postId ^ (postId >>> 32)) & (locks.length - 1)];
+    }
+}
@@ -2,6 +2,9 @@ package com.example.upvote;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
@@ -12,6 +15,7 @@ import com.example.upvote.AppUserService;   // <-- added import
  * Minimal controller: only POST JSON endpoint retained.
  */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/auth")
 public class LoginController {
 
@@ -34,7 +38,7 @@ public class LoginController {
         // Convert RegisterRequest → AppUser
         AppUser user = new AppUser();
         user.setUsername(req.getUsername());
-        user.setPasswordHash(req.getPassword()); // temporarily storing raw password
+        user.setPasswordHash(req.getPassword()); // raw here, hashed by AppUserService.register
 
         appUserService.registerNewUser(user);
 
@@ -42,6 +46,14 @@ public class LoginController {
         return ResponseEntity.status(201).body("User received");
     }
 
+    // hashing executor saturated: tell the client to back off instead of failing with 500
+    @ExceptionHandler(PasswordHashingRejectedException.class)
+    public ResponseEntity<String> hashingRejected(PasswordHashingRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Too many requests, retry shortly");
+    }
+
     // Simple DTO used only for JSON mapping in this controller
     public static class RegisterRequest {
         private String firstName;
@@ -0,0 +1,100 @@
+package com.example.upvote;
+
+import java.util.Arrays;
+
+/**
+ * Small open-addressing set of primitive longs (no boxing, one long[] per set).
+ * Not thread-safe: callers synchronize on the instance.
+ */
+final class LongHashSet {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final long TOMBSTONE = Long.MIN_VALUE + 1;
+
+    private long[] slots;
+    private int size;
+    private int used; // live entries + tombstones
+
+    LongHashSet() {
+        this(8);
+    }
+
+    LongHashSet(int expected) {
+        int cap = Integer.highestOneBit(Math.max(8, expected * 2 - 1)) << 1;
+        slots = new long[cap];
+        Arrays.fill(slots, EMPTY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(long value) {
+        check(value);
+        int mask = slots.length - 1;
+        for (int i = mix(value) & mask; ; i = (i + 1) & mask) {
+            long s = slots[i];
+            if (s == EMPTY) return false;
+            if (s == value) return true;
+        }
+    }
+
+    /** @return true when the value was not present before */
+    boolean add(long value) {
+        check(value);
+        if ((used + 1) * 4 >= slots.length * 3) rehash();
+        int mask = slots.length - 1;
+        int firstTombstone = -1;
+        for (int i = mix(value) & mask; ; i = (i + 1) & mask) {
+            long s = slots[i];
+            if (s == value) return false;
+            if (s == TOMBSTONE && firstTombstone < 0) firstTombstone = i;
+            if (s == EMPTY) {
+                if (firstTombstone >= 0) {
+                    slots[firstTombstone] = value;
+                } else {
+                    slots[i] = value;
+                    used++;
+                }
+                size++;
+                return true;
+            }
+        }
+    }
+
+    /** @return true when the value was present */
+    boolean remove(long value) {
+        check(value);
+        int mask = slots.length - 1;
+        for (int i = mix(value) & mask; ; i = (i + 1) & mask) {
+            long s = slots[i];
+            if (s == EMPTY) return false;
+            if (s == value) {
+                slots[i] = TOMBSTONE;
+                size--;
+                return true;
+            }
+        }
+    }
+
+    private void rehash() {
+        long[] old = slots;
+        int cap = size * 4 >= old.length ? old.length << 1 : old.length;
+        slots = new long[cap];
+        Arrays.fill(slots, EMPTY);
+        size = 0;
+        used = 0;
+        for (long s : old) {
+            if (s != EMPTY && s != TOMBSTONE) add(s);
+        }
+    }
+
+    private static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static void check(long value) {
+        if (value == EMPTY || value == TOMBSTONE) throw new IllegalArgumentException("Reserved value: " + value);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.upvote;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * ClusterTransport between nodes in one JVM: a batch sent by one member of a Hub is handed to every
+ * other member, synchronously on the sender's thread. Without a shared Hub a node only talks to itself,
+ * which is what a single instance with upvote.cluster.enabled gets.
+ */
+public class LoopbackTransport implements ClusterTransport {
+
+    /** The members that see each other's batches. */
+    public static final class Hub {
+        private final List<LoopbackTransport> members = new CopyOnWriteArrayList<>();
+    }
+
+    private final Hub hub;
+    private volatile Consumer<CounterDeltas> receiver = deltas -> {};
+
+    public LoopbackTransport() {
+        this(new Hub());
+    }
+
+    public LoopbackTransport(Hub hub) {
+        this.hub = hub;
+        hub.members.add(this);
+    }
+
+    @Override
+    public void send(CounterDeltas deltas) {
+        for (LoopbackTransport member : hub.members) {
+            if (member != this) member.receiver.accept(deltas);
+        }
+    }
+
+    @Override
+    public void onReceive(Consumer<CounterDeltas> receiver) {
+        this.receiver = receiver;
+    }
+
+    /** Stop receiving (a node leaving or crashing). */
+    public void leave() {
+        hub.members.remove(this);
+    }
+}
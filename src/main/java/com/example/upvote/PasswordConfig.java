@@ -0,0 +1,29 @@
+package com.example.upvote;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+// shared by both web stacks (SecurityConfig, ReactiveSecurityConfig)
+@Configuration
+public class PasswordConfig {
+
+    /**
+     * BCrypt (configurable work factor) on a bounded executor, see BoundedPasswordEncoder.
+     * threads <= 0 means one per available core.
+     */
+    @Bean
+    public PasswordEncoder passwordEncoder(
+            MeterRegistry registry,
+            @Value("${upvote.password.bcrypt-strength:10}") int strength,
+            @Value("${upvote.password.threads:0}") int threads,
+            @Value("${upvote.password.queue-size:64}") int queueSize,
+            @Value("${upvote.password.timeout-ms:5000}") long timeoutMs
+    ) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), poolSize, queueSize, timeoutMs, registry);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.upvote;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * The password hashing executor is saturated (or too slow); callers answer 429.
+ * An AuthenticationServiceException so the form-login filter hands it to the failure handler.
+ */
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class PasswordHashingRejectedException extends AuthenticationServiceException {
+
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+}
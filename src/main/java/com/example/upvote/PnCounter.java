@@ -0,0 +1,56 @@
+package com.example.upvote;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PN-counter CRDT of one post (replicated VoteCounter, upvote.cluster.enabled):
+ * - one slot per node: a grow-only count of its increments (p) and of its decrements (n)
+ * - value = sum of p - sum of n
+ * - merging keeps the larger p and the larger n of a slot, so replicas that have seen the same slot
+ *   states agree, whatever order, delay or duplication the states arrived with
+ * Only the owning node ever advances its slot; everyone else just merges it.
+ */
+final class PnCounter {
+
+    record Slot(String node, long p, long n) {}
+
+    // node -> {p, n}
+    private final Map<String, long[]> slots = new HashMap<>(4);
+    private long value;
+
+    synchronized long value() {
+        return value;
+    }
+
+    /** A local vote (+1 / -1) on the node's own slot. */
+    synchronized void add(String node, int delta) {
+        long[] s = slots.computeIfAbsent(node, k -> new long[2]);
+        if (delta > 0) s[0] += delta;
+        else s[1] -= delta;
+        value += delta;
+    }
+
+    /** Merge a slot state; returns by how much the value moved (0 when it was not newer). */
+    synchronized long merge(String node, long p, long n) {
+        long[] s = slots.computeIfAbsent(node, k -> new long[2]);
+        long moved = Math.max(0, p - s[0]) - Math.max(0, n - s[1]);
+        s[0] = Math.max(s[0], p);
+        s[1] = Math.max(s[1], n);
+        value += moved;
+        return moved;
+    }
+
+    synchronized Slot slot(String node) {
+        long[] s = slots.get(node);
+        return s == null ? new Slot(node, 0, 0) : new Slot(node, s[0], s[1]);
+    }
+
+    synchronized List<Slot> slots() {
+        List<Slot> out = new ArrayList<>(slots.size());
+        slots.forEach((node, s) -> out.add(new Slot(node, s[0], s[1])));
+        return out;
+    }
+}
@@ -1,11 +1,27 @@
 package com.example.upvote;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
+
+import java.time.Instant;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_post_upvotes_id", columnList = "upvotes DESC, id DESC"), // keyset paging of GET /posts
+        @Index(name = "idx_post_hot_id", columnList = "hot_score DESC, id DESC"),   // GET /posts?sort=hot
+        @Index(name = "idx_post_created_at", columnList = "created_at")             // HotRanker decay pass
+})
+@DynamicUpdate // a title edit writes title + version only, never a stale upvotes / hot_score
 public class Post {
 
     @Id
@@ -16,6 +32,25 @@ public class Post {
 
     private int upvotes = 0;   // must exist for increment/remove
 
+    // set on insert; null only for rows created before the column existed
+    @Column(name = "created_at", updatable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Instant createdAt;
+
+    // time-decayed rank, maintained in bulk by HotRanker
+    @Column(name = "hot_score", nullable = false)
+    @ColumnDefault("0") // lets ddl-auto add the column to an existing table
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private double hotScore = 0;
+
+    // bumped by every entity write (title edits, deletes); the counter and score statements
+    // are commutative deltas and deliberately leave it alone, so votes never conflict with edits
+    @Version
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
     // -------------------------------------------------------
     // Constructors
     // -------------------------------------------------------
@@ -48,6 +83,43 @@ public class Post {
         this.upvotes = upvotes;
     }
 
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public double getHotScore() {
+        return hotScore;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /** Detached copy (for caches and other holders that must not share the entity instance). */
+    Post copy() {
+        return restore(id, title, upvotes, createdAt, hotScore, version);
+    }
+
+    /** Rebuild a post from state kept outside JPA (in-memory store). */
+    static Post restore(Long id, String title, int upvotes, Instant createdAt, double hotScore) {
+        return restore(id, title, upvotes, createdAt, hotScore, 0);
+    }
+
+    static Post restore(Long id, String title, int upvotes, Instant createdAt, double hotScore, long version) {
+        Post p = new Post(title);
+        p.id = id;
+        p.upvotes = upvotes;
+        p.createdAt = createdAt;
+        p.hotScore = hotScore;
+        p.version = version;
+        return p;
+    }
+
+    @PrePersist
+    void onCreate() {
+        if (createdAt == null) createdAt = Instant.now();
+    }
+
     // -------------------------------------------------------
     // Increment helper (used by POST /upvote)
     // -------------------------------------------------------
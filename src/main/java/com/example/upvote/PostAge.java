@@ -0,0 +1,15 @@
+package com.example.upvote;
+
+import java.time.Instant;
+
+/**
+ * Projection with just what the hot score needs.
+ */
+public interface PostAge {
+
+    Long getId();
+
+    int getUpvotes();
+
+    Instant getCreatedAt();
+}
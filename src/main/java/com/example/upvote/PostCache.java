@@ -0,0 +1,56 @@
+package com.example.upvote;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * PostCache:
+ * - read-through cache of single posts in front of PostStore (size + TTL bounded)
+ * - the cached copy is only trusted for title / createdAt: the count is overlaid from
+ *   VoteCounter on every read, so a reader never sees a count older than the last vote on this node
+ * - create puts, delete invalidates; hit/miss/eviction metrics are published as cache.* with cache=posts
+ */
+@Component
+public class PostCache {
+
+    private final PostStore store;
+    private final VoteCounter counter;
+    private final Cache<Long, Post> cache;
+
+    public PostCache(PostStore store, VoteCounter counter, MeterRegistry registry,
+                     @Value("${upvote.cache.posts.max-size:10000}") long maxSize,
+                     @Value("${upvote.cache.posts.ttl:10m}") Duration ttl) {
+        this.store = store;
+        this.counter = counter;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "posts");
+    }
+
+    /** The post with its live count, or empty when it does not exist (misses are not cached). */
+    public Optional<Post> get(long id) {
+        if (!store.isAvailable()) return Optional.empty();
+        Post cached = cache.get(id, k -> store.findById(k).orElse(null));
+        if (cached == null) return Optional.empty();
+        // hand out a copy: the cached instance is shared between threads and must not be mutated
+        return Optional.of(counter.overlay(cached.copy()));
+    }
+
+    public void put(Post post) {
+        if (post != null && post.getId() != null) cache.put(post.getId(), post.copy());
+    }
+
+    public void invalidate(long id) {
+        cache.invalidate(id);
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.upvote;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * PostChangeLog: the global change version of the posts list, and which posts moved since a version.
+ * - every write path bumps the version: create / edit / delete / count changes record the post,
+ *   counter flushes and hot score passes only bump (they reorder pages but change no post a client has)
+ * - GET /posts uses the version as its ETag, so If-None-Match is answered 304 from memory
+ * - GET /posts?since=v lists the posts created, changed or deleted after v
+ * - bounded: one entry per post (its latest change), trimmed to upvote.changes.max-entries every
+ *   upvote.changes.trim-interval-ms; once older entries were dropped, or for a version this log never issued,
+ *   since() is empty and the client reloads
+ * - the write hooks run on every vote, so they take no global monitor: an atomic version, a per-post
+ *   compute and a skip-list insert. since() is the only slow reader; see publishing
+ * Versions start at the boot time in microseconds, so a version from before a restart is always too old
+ * rather than silently matching new data. They are per node: behind a load balancer, keep clients sticky.
+ */
+@Component
+public class PostChangeLog {
+
+    /** Changes after a version: posts created, edited or recounted (ids), deleted posts, and the version they lead to. */
+    public record Delta(long version, List<Long> created, List<Long> changed, List<Long> deleted) {
+        public int size() {
+            return created.size() + changed.size() + deleted.size();
+        }
+    }
+
+    private record Entry(long id, long version, long createdVersion, boolean deleted) {}
+
+    private final int maxEntries;
+
+    // version -> latest change of one post; post id -> that change
+    private final ConcurrentSkipListMap<Long, Entry> byVersion = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Long, Entry> byPost = new ConcurrentHashMap<>();
+    // oldest version since() can still answer for: everything after it is in the log
+    private volatile long floor;
+    private final AtomicLong version;
+    // held shared by a write hook from taking its version until its entry is in byVersion, and exclusively by
+    // since() just long enough to read the version: every version up to the one it reads is then in the log
+    private final StampedLock publishing = new StampedLock();
+
+    public PostChangeLog(VoteCounter counter, @Value("${upvote.changes.max-entries:10000}") int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.version = new AtomicLong(System.currentTimeMillis() * 1000);
+        this.floor = version.get();
+        counter.onFlushed(batch -> bump());
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    /** Strong ETag of every listing served at this version. */
+    public String etag() {
+        return "\"" + version.get() + "\"";
+    }
+
+    // -------------------------------------------------------
+    // Write hooks
+    // -------------------------------------------------------
+
+    public void created(long postId) {
+        record(postId, false, true);
+    }
+
+    public void changed(long postId) {
+        record(postId, false, false);
+    }
+
+    public void deleted(long postId) {
+        record(postId, true, false);
+    }
+
+    /** Listings changed (order, scores) but no post did. */
+    public void bump() {
+        version.incrementAndGet();
+    }
+
+    // -------------------------------------------------------
+    // Reads
+    // -------------------------------------------------------
+
+    /** Changes after the given version, or empty when the log no longer (or never did) reach back to it. */
+    public Optional<Delta> since(long since) {
+        long stamp = publishing.writeLock();
+        long current = version.get();
+        publishing.unlockWrite(stamp);
+        if (since < floor || since > current) return Optional.empty();
+
+        // entries newer than current may show up too; the client sees them again next time, which is harmless
+        List<Long> created = new ArrayList<>();
+        List<Long> changed = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        for (Entry e : byVersion.tailMap(since, false).values()) {
+            if (e.deleted()) deleted.add(e.id());
+            else if (e.createdVersion() > since) created.add(e.id());
+            else changed.add(e.id());
+        }
+        if (since < floor) return Optional.empty(); // trimmed while we read
+        return Optional.of(new Delta(current, created, changed, deleted));
+    }
+
+    int size() {
+        return byPost.size();
+    }
+
+    // -------------------------------------------------------
+    // Trim (off the write path)
+    // -------------------------------------------------------
+    @Scheduled(fixedDelayString = "${upvote.changes.trim-interval-ms:1000}")
+    public synchronized void trim() {
+        while (byPost.size() > maxEntries) {
+            Map.Entry<Long, Entry> oldest = byVersion.firstEntry();
+            if (oldest == null) return;
+            floor = oldest.getKey(); // before it goes: a since() that missed it sees the floor moved
+            if (byVersion.remove(oldest.getKey(), oldest.getValue())) byPost.remove(oldest.getValue().id(), oldest.getValue());
+        }
+    }
+
+    // -------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------
+
+    private void record(long postId, boolean deleted, boolean created) {
+        long stamp = publishing.readLock();
+        try {
+            byPost.compute(postId, (id, old) -> {
+                long v = version.incrementAndGet();
+                long createdVersion = created ? v : old != null ? old.createdVersion() : 0;
+                Entry e = new Entry(id, v, createdVersion, deleted);
+                // the new entry goes in before the old one goes, so a since() scanning meanwhile sees one of them
+                byVersion.put(v, e);
+                if (old != null) byVersion.remove(old.version(), old);
+                return e;
+            });
+        } finally {
+            publishing.unlockRead(stamp);
+        }
+    }
+}
@@ -1,43 +1,161 @@
 package com.example.upvote;
 
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.security.oauth2.core.oidc.user.OidcUser;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/posts")
 public class PostController {
 
-    private final Optional<PostRepository> repoOpt;
+    static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE = 100;
+    static final int MAX_BATCH_OPS = 50_000;
+    // ?since= deltas larger than this are answered with a reset: reloading the first page is cheaper
+    static final int MAX_DELTA = 1000;
+    private static final int BATCH_CHUNK = 500;
 
-    public PostController(Optional<PostRepository> repoOpt) {
-        this.repoOpt = repoOpt;
+    private final PostStore store;
+    private final VoteCounter counter;
+    private final VoteLedger ledger;
+    private final AppUserService users;
+    private final Leaderboard leaderboard;
+    private final HotRanker hotRanker;
+    private final PostEvents events;
+    private final PostCache cache;
+    private final VoteJournal journal;
+    private final ConflictRetry retry;
+    private final PostSearchIndex search;
+    private final PostChangeLog changes;
+    private final Optional<RateLimitFilter> rateLimit;
+
+    public PostController(PostStore store, VoteCounter counter,
+                          VoteLedger ledger, AppUserService users, Leaderboard leaderboard,
+                          HotRanker hotRanker, PostEvents events, PostCache cache, VoteJournal journal,
+                          ConflictRetry retry, PostSearchIndex search, PostChangeLog changes,
+                          Optional<RateLimitFilter> rateLimit) {
+        this.store = store;
+        this.counter = counter;
+        this.ledger = ledger;
+        this.users = users;
+        this.leaderboard = leaderboard;
+        this.hotRanker = hotRanker;
+        this.events = events;
+        this.cache = cache;
+        this.journal = journal;
+        this.retry = retry;
+        this.search = search;
+        this.changes = changes;
+        this.rateLimit = rateLimit;
+        // a vote another node had already counted: take it back here, and refresh what derives from the count
+        ledger.onRejected((id, votes) -> counted(id, counter.revert(id, votes)));
     }
 
     // -------------------------------------------------------
-    // List all posts
+    // List posts, one keyset page at a time:
+    //   sort=top (default): upvotes DESC, id DESC
+    //   sort=hot:           hotScore DESC, id DESC (see HotRanker)
+    // Every listing carries the PostChangeLog version as its ETag: If-None-Match with the current one
+    // is answered 304 before any store access. ?since=<version> (the ETag value) returns what changed after it
     // -------------------------------------------------------
     @GetMapping
-    public List<Post> all() {
-        return repoOpt.map(PostRepository::findAll).orElse(Collections.emptyList());
+    public ResponseEntity<?> all(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(defaultValue = "top") String sort,
+            @RequestParam(required = false) Long since,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        boolean hot = "hot".equals(sort);
+        if (!hot && !"top".equals(sort)) return ResponseEntity.badRequest().body(Map.of("error", "Unknown sort"));
+        if (!store.isAvailable()) return ResponseEntity.ok(new PostPage(Collections.emptyList(), null));
+
+        // taken before reading: a change racing with this request makes the ETag older, never newer, than the body
+        String etag = changes.etag();
+        if (matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+        }
+        if (since != null) return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(delta(since));
+
+        PostPage.Cursor after;
+        try {
+            after = cursor == null || cursor.isBlank() ? null : PostPage.Cursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid cursor"));
+        }
+
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        // one extra row tells us whether there is a next page
+        List<Post> rows = store.page(hot ? PostStore.Sort.HOT : PostStore.Sort.TOP, after, limit + 1);
+
+        String next = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            Post last = rows.get(limit - 1);
+            // the cursor must carry the persisted key the query ordered by, so take it before the overlay
+            next = new PostPage.Cursor(hot ? last.getHotScore() : last.getUpvotes(), last.getId()).encode();
+        }
+        rows.forEach(counter::overlay);
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(new PostPage(rows, next));
+    }
+
+    // -------------------------------------------------------
+    // Top n posts by score, straight from the in-memory leaderboard
+    // -------------------------------------------------------
+    @GetMapping("/top")
+    public List<Leaderboard.Entry> top(@RequestParam(defaultValue = "10") int n) {
+        return leaderboard.top(Math.max(1, Math.min(n, MAX_PAGE_SIZE)));
+    }
+
+    // -------------------------------------------------------
+    // Search titles: ?q=upvote dem -> posts matching most words (as words or prefixes), then by score;
+    // served from the in-memory PostSearchIndex, never a LIKE scan of the table
+    // -------------------------------------------------------
+    @GetMapping("/search")
+    public ResponseEntity<?> search(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size
+    ) {
+        if (q.isBlank()) return ResponseEntity.badRequest().body(Map.of("error", "Query required"));
+        return ResponseEntity.ok(search.search(q, Math.max(1, Math.min(size, MAX_PAGE_SIZE))));
+    }
+
+    // -------------------------------------------------------
+    // Live changes (SSE): coalesced "posts" events, see PostEvents
+    // -------------------------------------------------------
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        return events.subscribe();
     }
 
     // -------------------------------------------------------
-    // Get a single post
+    // Get a single post (read-through PostCache, live count)
     // -------------------------------------------------------
     @GetMapping("/{id}")
     public ResponseEntity<Post> get(@PathVariable Long id) {
-        if (repoOpt.isEmpty()) return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
-        return repoOpt.get().findById(id)
+        if (!store.isAvailable()) return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        return cache.get(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -47,76 +165,305 @@ public class PostController {
     // -------------------------------------------------------
     @PostMapping
     public ResponseEntity<?> create(@RequestBody Post p) {
-        if (repoOpt.isEmpty()) {
+        if (!store.isAvailable()) {
             return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
                     .body(Map.of("error","No repository available"));
         }
-        Post saved = repoOpt.get().save(p);
+        Post saved = store.save(p);
+        leaderboard.put(saved);
+        search.put(saved);
+        cache.put(saved);
+        events.created(saved);
+        changes.created(saved.getId());
         return ResponseEntity.status(HttpStatus.CREATED).body(saved);
     }
 
     // -------------------------------------------------------
-    // UPVOTE a post (increment)
+    // EDIT a post's title:  {"title": "...", "version": 3}
+    // With a version the edit only applies to that version of the post (409 + the current post
+    // otherwise); without one the last writer wins. Lost races in between are retried (ConflictRetry).
+    // -------------------------------------------------------
+    @PutMapping("/{id}")
+    public ResponseEntity<?> update(@PathVariable Long id, @RequestBody PostEdit edit) {
+        if (!store.isAvailable()) return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        if (edit == null || edit.title() == null || edit.title().isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Title required"));
+        }
+
+        return retry.run("update", () -> {
+            Optional<Post> current = store.findById(id);
+            if (current.isEmpty()) return ResponseEntity.notFound().build();
+            if (stale(edit.version(), current.get())) {
+                retry.stale("update");
+                return conflict(current.get());
+            }
+            Optional<Post> saved = store.updateTitle(id, edit.title(), current.get().getVersion());
+            if (saved.isEmpty()) return ResponseEntity.notFound().build();
+            Post post = counter.overlay(saved.get());
+            leaderboard.put(post);
+            search.put(post); // versioned: a slower concurrent edit cannot re-index an older title
+            cache.invalidate(id); // not put: a slower concurrent edit must not overwrite a newer version
+            events.updated(post);
+            changes.changed(id);
+            return ResponseEntity.ok(post);
+        }, () -> conflict(id));
+    }
+
+    /** Body of PUT /posts/{id}; version is the Post.version the edit was made against, if known. */
+    public record PostEdit(String title, Long version) {}
+
+    // -------------------------------------------------------
+    // UPVOTE a post (one vote per user, applied in memory)
     // -------------------------------------------------------
     @PostMapping("/{id}/upvote")
-    @Transactional
     public ResponseEntity<?> upvote(
             @PathVariable Long id,
-            @AuthenticationPrincipal UserDetails user
+            @AuthenticationPrincipal UserDetails user,
+            Authentication auth
     ) {
-        if (repoOpt.isEmpty()) return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        if (!store.isAvailable()) return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
 
-        return repoOpt.get().findById(id).map(post -> {
-            post.increment();
-            repoOpt.get().save(post);
+        Long userId = voterId(user, auth);
+        if (userId == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
 
-            Map<String,Object> resp = new HashMap<>();
-            resp.put("count", post.getUpvotes());
-            resp.put("upvoted", true);
-            return ResponseEntity.ok(resp);
-        }).orElse(ResponseEntity.notFound().build());
+        OptionalLong count = counter.current(id);
+        if (count.isEmpty()) return ResponseEntity.notFound().build();
+
+        // repeated clicks are no-ops: only the first vote of a user moves the count
+        if (ledger.record(id, userId)) {
+            journal.append(id, userId, 1);
+            count = counted(id, counter.increment(id));
+            if (count.isEmpty()) return ResponseEntity.notFound().build();
+        }
+
+        Map<String,Object> resp = new HashMap<>();
+        resp.put("count", count.getAsLong());
+        resp.put("upvoted", ledger.hasVoted(id, userId));
+        return ResponseEntity.ok(resp);
     }
 
     // -------------------------------------------------------
-    // REMOVE UPVOTE (decrement)
+    // REMOVE UPVOTE (only the caller's own vote)
     // -------------------------------------------------------
     @DeleteMapping("/{id}/upvote")
-    @Transactional
-    public ResponseEntity<Map<String, Object>> removeUpvote(@PathVariable Long id) {
-        if (repoOpt.isEmpty()) return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    public ResponseEntity<Map<String, Object>> removeUpvote(
+            @PathVariable Long id,
+            @AuthenticationPrincipal UserDetails user,
+            Authentication auth
+    ) {
+        if (!store.isAvailable()) return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
 
-        return repoOpt.get().findById(id).map(post -> {
+        Long userId = voterId(user, auth);
+        if (userId == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
 
-            int current = post.getUpvotes();
-            if (current > 0) {
-                post.setUpvotes(current - 1);
+        OptionalLong count = counter.current(id);
+        if (count.isEmpty()) return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+
+        if (ledger.retract(id, userId)) {
+            journal.append(id, userId, -1);
+            count = counted(id, counter.decrement(id));
+            if (count.isEmpty()) return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+
+        Map<String, Object> resp = new HashMap<>();
+        resp.put("count", count.getAsLong());
+        resp.put("upvoted", ledger.hasVoted(id, userId));
+
+        return ResponseEntity.ok(resp);
+    }
+
+    // -------------------------------------------------------
+    // BATCH votes of the caller (offline clients replaying a queue):
+    //   [{"postId": 1, "op": "upvote"}, {"postId": 1, "op": "unvote"}, ...]
+    // Ops are netted per post (the last one wins, a user's vote is a state, not a sum),
+    // applied chunk by chunk, and answered with one result per item, in request order.
+    // -------------------------------------------------------
+    @PostMapping("/votes:batch")
+    public ResponseEntity<?> voteBatch(
+            @RequestBody List<VoteOp> ops,
+            @AuthenticationPrincipal UserDetails user,
+            Authentication auth,
+            HttpServletRequest request
+    ) {
+        if (!store.isAvailable()) return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+
+        Long userId = voterId(user, auth);
+        if (userId == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        if (ops == null || ops.size() > MAX_BATCH_OPS) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Between 0 and " + MAX_BATCH_OPS + " ops per batch"));
+        }
+        rateLimit.ifPresent(limit -> limit.chargeBatch(request, ops.size()));
+
+        // net: index of the winning (last) op per post, in first-seen post order
+        Map<Long, Integer> winner = new LinkedHashMap<>();
+        List<Map<String, Object>> results = new ArrayList<>(ops.size());
+        for (int i = 0; i < ops.size(); i++) {
+            VoteOp op = ops.get(i);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("index", i);
+            if (op == null || op.postId() == null || op.up() == null) {
+                result.put("status", "invalid");
+            } else {
+                result.put("postId", op.postId());
+                Integer previous = winner.put(op.postId(), i);
+                if (previous != null) results.get(previous).put("status", "superseded");
             }
+            results.add(result);
+        }
 
-            repoOpt.get().save(post);
+        List<Long> postIds = new ArrayList<>(winner.keySet());
+        long journaled = 0;
+        for (int from = 0; from < postIds.size(); from += BATCH_CHUNK) {
+            List<Long> chunk = postIds.subList(from, Math.min(postIds.size(), from + BATCH_CHUNK));
+            counter.preload(chunk); // one PostStore lookup for the posts not yet in memory
+            for (Long id : chunk) {
+                Map<String, Object> result = results.get(winner.get(id));
+                boolean up = ops.get(winner.get(id)).up();
 
-            Map<String, Object> resp = new HashMap<>();
-            resp.put("count", post.getUpvotes());
-            resp.put("upvoted", false);
+                OptionalLong count = counter.current(id);
+                if (count.isEmpty()) {
+                    result.put("status", "not_found");
+                    continue;
+                }
+                boolean changed = up ? ledger.record(id, userId) : ledger.retract(id, userId);
+                if (changed) {
+                    journaled = journal.record(id, userId, up ? 1 : -1);
+                    count = counted(id, up ? counter.increment(id) : counter.decrement(id));
+                }
+                if (count.isEmpty()) {
+                    result.put("status", "not_found");
+                    continue;
+                }
+                result.put("status", changed ? "applied" : "unchanged");
+                result.put("count", count.getAsLong());
+                result.put("upvoted", up);
+            }
+        }
+        journal.sync(journaled); // one durability wait for the whole batch
 
-            return ResponseEntity.ok(resp);
+        return ResponseEntity.ok(Map.of("results", results));
+    }
 
-        }).orElse(ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    /** One item of POST /posts/votes:batch; op is "upvote" or "unvote". */
+    public record VoteOp(Long postId, String op) {
+        Boolean up() {
+            if ("upvote".equals(op)) return Boolean.TRUE;
+            if ("unvote".equals(op)) return Boolean.FALSE;
+            return null;
+        }
     }
 
     // -------------------------------------------------------
-    // DELETE a post (remove post by id)
+    // DELETE a post (remove post by id); ?version=3 only deletes that version, like PUT
     // -------------------------------------------------------
     @DeleteMapping("/{id}")
-    @Transactional
-    public ResponseEntity<Map<String,Object>> deletePost(@PathVariable Long id) {
-        if (repoOpt.isEmpty()) return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
-
-        return repoOpt.get().findById(id).map(post -> {
-            repoOpt.get().delete(post);
-            Map<String,Object> resp = new HashMap<>();
-            resp.put("deleted", true);
-            resp.put("id", id);
-            return ResponseEntity.ok(resp);
-        }).orElse(ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    public ResponseEntity<Map<String,Object>> deletePost(@PathVariable Long id,
+                                                         @RequestParam(required = false) Long version) {
+        if (!store.isAvailable()) return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+
+        return retry.run("delete", () -> {
+            Optional<Post> current = store.findById(id);
+            if (current.isEmpty()) return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            if (stale(version, current.get())) {
+                retry.stale("delete");
+                return conflict(current.get());
+            }
+            if (!store.delete(id, current.get().getVersion())) return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            return deleted(id);
+        }, () -> conflict(id));
+    }
+
+    private ResponseEntity<Map<String,Object>> deleted(long id) {
+        counter.forget(id);
+        ledger.forget(id);
+        leaderboard.remove(id);
+        search.remove(id);
+        cache.invalidate(id);
+        events.deleted(id);
+        changes.deleted(id);
+        Map<String,Object> resp = new HashMap<>();
+        resp.put("deleted", true);
+        resp.put("id", id);
+        return ResponseEntity.ok(resp);
+    }
+
+    private static boolean stale(Long expected, Post current) {
+        return expected != null && expected != current.getVersion();
+    }
+
+    // 409 with the post as it is now, so the client can redo its change against that version
+    private ResponseEntity<Map<String,Object>> conflict(Post current) {
+        Map<String,Object> resp = new HashMap<>();
+        resp.put("error", "Post was changed concurrently");
+        resp.put("current", counter.overlay(current));
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(resp);
+    }
+
+    // retries ran out: re-read the post for the 409 (404 if it is gone by now)
+    private ResponseEntity<Map<String,Object>> conflict(long id) {
+        cache.invalidate(id);
+        return store.findById(id)
+                .map(this::conflict)
+                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+
+    // a vote moved the count: refresh everything derived from it
+    private OptionalLong counted(long id, OptionalLong count) {
+        if (count.isPresent()) {
+            leaderboard.touch(id);
+            hotRanker.markActive(id);
+            events.countChanged(id, count.getAsLong());
+            changes.changed(id);
+        }
+        return count;
+    }
+
+    // ?since=: the posts themselves (live counts, through PostCache) for what was created or changed,
+    // ids for what was deleted; {"reset": true} when the client has to reload from the first page
+    private Map<String, Object> delta(long since) {
+        Map<String, Object> resp = new LinkedHashMap<>();
+        Optional<PostChangeLog.Delta> delta = changes.since(since);
+        if (delta.isEmpty() || delta.get().size() > MAX_DELTA) {
+            resp.put("version", changes.version());
+            resp.put("reset", true);
+            return resp;
+        }
+        resp.put("version", delta.get().version());
+        resp.put("created", posts(delta.get().created()));
+        resp.put("updated", posts(delta.get().changed()));
+        resp.put("deleted", delta.get().deleted());
+        return resp;
+    }
+
+    // posts deleted after the delta was taken are simply missing; the next delta reports them
+    private List<Post> posts(List<Long> ids) {
+        List<Post> out = new ArrayList<>(ids.size());
+        for (long id : ids) cache.get(id).ifPresent(out::add);
+        return out;
+    }
+
+    // If-None-Match: a list of entity tags, or *; compared weakly as RFC 9110 asks for GET
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    // -------------------------------------------------------
+    // Resolve the voting user (form login or OIDC) to an AppUser id
+    // -------------------------------------------------------
+    private Long voterId(UserDetails user, Authentication auth) {
+        if (user != null) return users.userId(user.getUsername());
+        if (auth == null || auth instanceof AnonymousAuthenticationToken) return null;
+
+        // same username rule as OAuthUserConfig: email, falling back to the subject
+        if (auth.getPrincipal() instanceof OidcUser oidc && oidc.getEmail() != null && !oidc.getEmail().isBlank()) {
+            return users.userId(oidc.getEmail());
+        }
+        return users.userId(auth.getName());
     }
 }
@@ -0,0 +1,52 @@
+package com.example.upvote;
+
+import jakarta.persistence.*;
+
+/**
+ * One node's PN-counter slot of a post (replicated VoteCounter, see PnCounter): absolute counts of the
+ * votes that node added (p) and took back (n). Only its own node writes a slot, through JpaPostStore's
+ * JDBC batches; the entity is here for the schema.
+ */
+@Entity
+@Table(name = "post_counter_slot",
+        uniqueConstraints = @UniqueConstraint(name = "uk_post_counter_slot_post_node", columnNames = {"post_id", "node"}))
+public class PostCounterSlot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "post_id", nullable = false)
+    private Long postId;
+
+    @Column(nullable = false, length = 64)
+    private String node;
+
+    @Column(nullable = false)
+    private long p;
+
+    @Column(nullable = false)
+    private long n;
+
+    protected PostCounterSlot() {}
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getPostId() {
+        return postId;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public long getP() {
+        return p;
+    }
+
+    public long getN() {
+        return n;
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.upvote;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * PostEvents:
+ * - registry of /posts/stream subscribers (async SseEmitters, so idle connections hold no thread)
+ * - PostController publishes create / update / count / delete changes here
+ * - changes are coalesced per post and pushed as one "posts" message per window to every subscriber
+ * - subscribers are written in parallel, never on the scheduler thread: on a virtual thread each with
+ *   spring.threads.virtual.enabled (Java 21), else on a pool of upvote.stream.send-threads
+ * - a window waits at most upvote.stream.send-timeout-ms for its writes. A subscriber still writing then
+ *   is dropped, and its stream is closed once that write returns; the client reconnects (?since= catches
+ *   it up). A slow client delays the others by one send timeout, once; only when every pool thread is held
+ *   by such writes do the writes queued behind them time out too
+ */
+@Component
+public class PostEvents {
+
+    private static final Logger log = LoggerFactory.getLogger(PostEvents.class);
+
+    private final ObjectMapper mapper;
+    private final long timeoutMs;
+    private final long sendTimeoutMs;
+
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+    // latest change per post id since the last broadcast
+    private final ConcurrentMap<Long, Map<String, Object>> pending = new ConcurrentHashMap<>();
+    private final Executor fanOut;
+    // null with virtual threads
+    private final ThreadPoolExecutor pool;
+
+    public PostEvents(ObjectMapper mapper,
+                      @Value("${upvote.stream.timeout-ms:1800000}") long timeoutMs,
+                      @Value("${upvote.stream.send-threads:4}") int sendThreads,
+                      @Value("${upvote.stream.send-timeout-ms:1000}") long sendTimeoutMs,
+                      Environment environment) {
+        this.mapper = mapper;
+        this.timeoutMs = timeoutMs;
+        this.sendTimeoutMs = sendTimeoutMs;
+        if (Threading.VIRTUAL.isActive(environment)) {
+            this.pool = null;
+            this.fanOut = new VirtualThreadTaskExecutor("sse-");
+        } else {
+            AtomicInteger n = new AtomicInteger();
+            this.pool = new ThreadPoolExecutor(sendThreads, sendThreads, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                        Thread t = new Thread(r, "sse-" + n.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            this.fanOut = pool;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) pool.shutdownNow();
+    }
+
+    // -------------------------------------------------------
+    // Subscribers
+    // -------------------------------------------------------
+
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter(timeoutMs));
+    }
+
+    SseEmitter subscribe(SseEmitter emitter) {
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscribers.remove(emitter));
+        subscribers.add(emitter);
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    // -------------------------------------------------------
+    // Publish hooks (called from the write paths)
+    // -------------------------------------------------------
+
+    public void created(Post post) {
+        pending.put(post.getId(), createdChange(post));
+    }
+
+    public void updated(Post post) {
+        pending.merge(post.getId(), updatedChange(post), PostEvents::coalesce);
+    }
+
+    public void countChanged(long postId, long upvotes) {
+        pending.merge(postId, countChange(postId, upvotes), PostEvents::coalesce);
+    }
+
+    public void deleted(long postId) {
+        pending.put(postId, deletedChange(postId));
+    }
+
+    // change payloads, shared with ReactivePostEvents
+
+    static Map<String, Object> createdChange(Post post) {
+        Map<String, Object> change = new LinkedHashMap<>();
+        change.put("type", "created");
+        change.put("id", post.getId());
+        change.put("title", post.getTitle());
+        change.put("upvotes", post.getUpvotes());
+        return change;
+    }
+
+    static Map<String, Object> updatedChange(Post post) {
+        Map<String, Object> change = new LinkedHashMap<>();
+        change.put("type", "updated");
+        change.put("id", post.getId());
+        change.put("title", post.getTitle());
+        change.put("version", post.getVersion());
+        return change;
+    }
+
+    static Map<String, Object> countChange(long postId, long upvotes) {
+        Map<String, Object> change = new LinkedHashMap<>();
+        change.put("type", "count");
+        change.put("id", postId);
+        change.put("upvotes", upvotes);
+        return change;
+    }
+
+    static Map<String, Object> deletedChange(long postId) {
+        Map<String, Object> change = new LinkedHashMap<>();
+        change.put("type", "deleted");
+        change.put("id", postId);
+        return change;
+    }
+
+    // a post created or edited in the same window keeps that type, with the newer fields patched in
+    // (so a count right after an edit does not lose the new title)
+    static Map<String, Object> coalesce(Map<String, Object> old, Map<String, Object> now) {
+        Object type = old.get("type");
+        if (!"created".equals(type) && !"updated".equals(type)) return now;
+        Map<String, Object> patched = new LinkedHashMap<>(old);
+        now.forEach((k, v) -> {
+            if (!"type".equals(k)) patched.put(k, v);
+        });
+        return patched;
+    }
+
+    // -------------------------------------------------------
+    // Broadcast: one message per window, serialized once for all subscribers
+    // -------------------------------------------------------
+    @Scheduled(fixedDelayString = "${upvote.stream.window-ms:200}")
+    public void broadcast() {
+        if (pending.isEmpty()) return;
+
+        List<Map<String, Object>> batch = new ArrayList<>(pending.size());
+        for (Long id : pending.keySet()) {
+            Map<String, Object> change = pending.remove(id);
+            if (change != null) batch.add(change);
+        }
+        if (batch.isEmpty() || subscribers.isEmpty()) return;
+
+        String json;
+        try {
+            json = mapper.writeValueAsString(batch);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize {} post changes: {}", batch.size(), e.getMessage());
+            return;
+        }
+        send(() -> SseEmitter.event().name("posts").data(json, MediaType.APPLICATION_JSON));
+    }
+
+    // keeps idle connections (and proxies in between) from timing out, and drops dead subscribers
+    @Scheduled(fixedDelayString = "${upvote.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        if (!subscribers.isEmpty()) send(() -> SseEmitter.event().comment("ping"));
+    }
+
+    private void send(Supplier<SseEmitter.SseEventBuilder> event) {
+        Map<SseEmitter, CompletableFuture<Void>> writes = new LinkedHashMap<>();
+        for (SseEmitter emitter : subscribers) {
+            writes.put(emitter, CompletableFuture.runAsync(() -> send(emitter, event), fanOut));
+        }
+        // wait for the writes before returning, so the next window cannot overtake this one
+        try {
+            CompletableFuture.allOf(writes.values().toArray(CompletableFuture[]::new))
+                    .get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+            return;
+        } catch (TimeoutException e) {
+            // dropped below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            // send(emitter, event) handles its own failures
+        }
+        int dropped = 0;
+        for (Map.Entry<SseEmitter, CompletableFuture<Void>> w : writes.entrySet()) {
+            if (w.getValue().isDone()) continue;
+            SseEmitter emitter = w.getKey();
+            subscribers.remove(emitter);
+            // completing now would wait for the emitter's write lock, held by the stuck send
+            w.getValue().whenComplete((r, e) -> emitter.complete());
+            dropped++;
+        }
+        log.info("Dropped {} stream subscribers that took longer than {} ms to take a message", dropped, sendTimeoutMs);
+    }
+
+    // an event builder can only be built once, hence one per subscriber
+    private void send(SseEmitter emitter, Supplier<SseEmitter.SseEventBuilder> event) {
+        try {
+            emitter.send(event.get());
+        } catch (IOException | IllegalStateException e) {
+            subscribers.remove(emitter);
+            emitter.completeWithError(e);
+        }
+    }
+}
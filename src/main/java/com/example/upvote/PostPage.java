@@ -0,0 +1,35 @@
+package com.example.upvote;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * One page of GET /posts. nextCursor is null on the last page.
+ */
+public record PostPage(List<Post> items, String nextCursor) {
+
+    /**
+     * Keyset position: the sort key (upvotes or hot score) and id of the last row
+     * of the previous page, sent to clients as an opaque url-safe token.
+     */
+    public record Cursor(double key, long id) {
+
+        public String encode() {
+            String raw = key + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        /** @throws IllegalArgumentException on a malformed token */
+        public static Cursor decode(String token) {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            int sep = raw.indexOf(':');
+            if (sep < 0) throw new IllegalArgumentException("Malformed cursor");
+            try {
+                return new Cursor(Double.parseDouble(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed cursor", e);
+            }
+        }
+    }
+}
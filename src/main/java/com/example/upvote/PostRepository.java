@@ -1,10 +1,76 @@
 package com.example.upvote;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
 
+    // -------------------------------------------------------
+    // Keyset pagination by score (both served by idx_post_upvotes_id)
+    // -------------------------------------------------------
+
+    // first page
+    List<Post> findAllByOrderByUpvotesDescIdDesc(Pageable page);
+
+    // every page after the row (upvotes, id)
+    @Query("select p from Post p where p.upvotes < :upvotes or (p.upvotes = :upvotes and p.id < :id) " +
+            "order by p.upvotes desc, p.id desc")
+    List<Post> findPageAfter(@Param("upvotes") int upvotes, @Param("id") long id, Pageable page);
+
+    // -------------------------------------------------------
+    // Keyset pagination by hot score (served by idx_post_hot_id)
+    // -------------------------------------------------------
+
+    List<Post> findAllByOrderByHotScoreDescIdDesc(Pageable page);
+
+    @Query("select p from Post p where p.hotScore < :score or (p.hotScore = :score and p.id < :id) " +
+            "order by p.hotScore desc, p.id desc")
+    List<Post> findHotPageAfter(@Param("score") double score, @Param("id") long id, Pageable page);
+
+    // -------------------------------------------------------
+    // Single-statement vote updates: the database applies the change to the current row,
+    // nothing is loaded into the persistence context (call inside a transaction)
+    // -------------------------------------------------------
+    @Modifying(clearAutomatically = true)
+    @Query("update Post p set p.upvotes = p.upvotes + 1 where p.id = :id")
+    int incrementUpvotes(@Param("id") long id);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Post p set p.upvotes = case when p.upvotes > 0 then p.upvotes - 1 else 0 end where p.id = :id")
+    int decrementUpvotesFloorZero(@Param("id") long id);
+
+    // re-select after one of the updates above, in the same transaction (MySQL has no UPDATE ... RETURNING)
+    @Query("select p.upvotes from Post p where p.id = :id")
+    int findUpvotesById(@Param("id") long id);
+
+    // -------------------------------------------------------
+    // Inputs of the hot score (HotRanker)
+    // -------------------------------------------------------
+
+    List<PostAge> findByIdIn(Collection<Long> ids);
+
+    // keyset page of the decay pass, walking idx_post_created_at (which ends in the primary key)
+    @Query("select p.id as id, p.upvotes as upvotes, p.createdAt as createdAt from Post p " +
+            "where p.createdAt > :since or (p.createdAt = :since and p.id > :id) order by p.createdAt, p.id")
+    List<PostAge> findCreatedAfter(@Param("since") Instant since, @Param("id") long afterId, Pageable page);
 
-}
\ No newline at end of file
+    // -------------------------------------------------------
+    // Whole-table pass for in-memory rebuilds (call inside a read-only transaction and close the stream)
+    // -------------------------------------------------------
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<PostSummary> streamAllBy();
+}
@@ -0,0 +1,408 @@
+package com.example.upvote;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * PostSearchIndex: inverted index over post titles behind GET /posts/search
+ * - titles split into lower-case letter/digit terms; query words also match as prefixes
+ *   ("upv" finds "upvote"), the terms being kept sorted so a prefix is one sub-map walk
+ * - posting lists are ascending post ids, delta + varint encoded (1-3 bytes per id instead of a boxed Long);
+ *   new posts have the largest ids, so they append in place
+ * - hits ranked by matched query words (a whole term counts double), then upvotes, from the Leaderboard
+ * - bounded per query: posting lists are scored shortest first and at most MAX_CANDIDATES posts are
+ *   collected, so a common word or a short prefix costs no more memory than a rare one; the rarest words,
+ *   the ones that tell posts apart, always get their full say
+ * - kept current by PostController (create / edit / delete) and imports; rebuilt at startup (StartupTasks)
+ *   from a single streaming query, titles tokenized in parallel chunks
+ */
+@Component
+public class PostSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(PostSearchIndex.class);
+
+    static final int MIN_PREFIX = 2;        // shorter query words only match whole terms
+    static final int MAX_EXPANSIONS = 64;   // terms one prefix may expand to
+    static final int MAX_QUERY_WORDS = 8;
+    static final int MAX_TERM_LENGTH = 64;
+    static final int MAX_CANDIDATES = 10_000; // posts scored per query
+    private static final int REBUILD_CHUNK = 4096;
+
+    private record Hit(int score, Leaderboard.Entry entry) {}
+
+    // one posting list a query touches: which query word it matches, and worth how much (2 whole term, 1 prefix)
+    private record Scan(int word, int score, Postings postings, int size) {}
+
+    private static final Comparator<Hit> RANK = Comparator.comparingInt(Hit::score)
+            .thenComparingLong(h -> h.entry().upvotes())
+            .thenComparingLong(h -> h.entry().id());
+
+    private final PostStore store;
+    private final Leaderboard leaderboard;
+
+    private volatile Index index = new Index();
+    // writes are rare (create / edit / delete): one lock keeps terms and docs consistent with each other
+    private final ReentrantLock writes = new ReentrantLock();
+    // writes made while a rebuild reads the store, replayed onto the rebuilt index (guarded by writes)
+    private List<Consumer<Index>> replay;
+
+    public PostSearchIndex(PostStore store, Leaderboard leaderboard) {
+        this.store = store;
+        this.leaderboard = leaderboard;
+    }
+
+    // -------------------------------------------------------
+    // Reads
+    // -------------------------------------------------------
+
+    /** Best `limit` posts for the query, most matched words first, then most upvoted. */
+    public List<Leaderboard.Entry> search(String query, int limit) {
+        List<String> words = terms(query);
+        if (words.isEmpty()) return List.of();
+        if (words.size() > MAX_QUERY_WORDS) words = words.subList(0, MAX_QUERY_WORDS);
+        Index ix = index;
+
+        List<Scan> scans = new ArrayList<>();
+        for (int w = 0; w < words.size(); w++) {
+            String word = words.get(w);
+            Postings exact = ix.terms.get(word);
+            if (exact != null) scans.add(new Scan(w, 2, exact, exact.size()));
+            if (word.length() >= MIN_PREFIX) {
+                int expanded = 0;
+                for (Postings longer : ix.terms.subMap(word, false, word + Character.MAX_VALUE, false).values()) {
+                    if (++expanded > MAX_EXPANSIONS) break;
+                    scans.add(new Scan(w, 1, longer, longer.size()));
+                }
+            }
+        }
+        scans.sort(Comparator.comparingInt(Scan::size));
+
+        // post -> best score per query word (a post counts once per word); new posts stop joining at the cap
+        int wordCount = words.size();
+        Map<Long, byte[]> matched = new HashMap<>();
+        for (Scan scan : scans) {
+            scan.postings().forEach(id -> {
+                byte[] perWord = matched.get(id);
+                if (perWord == null) {
+                    if (matched.size() >= MAX_CANDIDATES) return;
+                    perWord = new byte[wordCount];
+                    matched.put(id, perWord);
+                }
+                if (perWord[scan.word()] < scan.score()) perWord[scan.word()] = (byte) scan.score();
+            });
+        }
+
+        // bounded min-heap: the weakest of the current best `limit` hits sits on top
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, RANK);
+        matched.forEach((id, perWord) -> {
+            int score = 0;
+            for (byte b : perWord) score += b;
+            Optional<Leaderboard.Entry> entry = leaderboard.entry(id);
+            if (entry.isEmpty()) return; // deleted meanwhile
+            best.add(new Hit(score, entry.get()));
+            if (best.size() > limit) best.poll();
+        });
+        List<Leaderboard.Entry> out = new ArrayList<>(best.size());
+        while (!best.isEmpty()) out.add(best.poll().entry());
+        Collections.reverse(out);
+        return out;
+    }
+
+    // -------------------------------------------------------
+    // Incremental maintenance
+    // -------------------------------------------------------
+
+    /** Index a new post or an edited title; an older version than the one indexed is ignored. */
+    public void put(Post post) {
+        if (post == null || post.getId() == null) return;
+        long id = post.getId();
+        String title = post.getTitle();
+        long version = post.getVersion();
+        write(ix -> ix.put(id, title, version));
+    }
+
+    public void remove(long postId) {
+        write(ix -> ix.remove(postId));
+    }
+
+    public void rebuild() {
+        if (!store.isAvailable()) return;
+        long start = System.nanoTime();
+        writes.lock();
+        try {
+            replay = new ArrayList<>();
+        } finally {
+            writes.unlock();
+        }
+        try {
+            Index next = read();
+            writes.lock();
+            try {
+                replay.forEach(op -> op.accept(next));
+                index = next;
+            } finally {
+                writes.unlock();
+            }
+            log.info("Search index rebuilt with {} posts, {} terms in {} ms",
+                    next.docs.size(), next.terms.size(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            writes.lock();
+            try {
+                replay = null;
+            } finally {
+                writes.unlock();
+            }
+        }
+    }
+
+    // -------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------
+
+    private void write(Consumer<Index> op) {
+        writes.lock();
+        try {
+            op.accept(index);
+            if (replay != null) replay.add(op);
+        } finally {
+            writes.unlock();
+        }
+    }
+
+    // the store streams rows on this thread; each full chunk is tokenized on the common pool meanwhile
+    private Index read() {
+        Index next = new Index();
+        List<CompletableFuture<Map<String, LongList>>> parts = new ArrayList<>();
+        Chunk[] chunk = {new Chunk()};
+        store.forEach(p -> {
+            chunk[0].add(p.getId(), p.getTitle());
+            if (chunk[0].size == REBUILD_CHUNK) {
+                Chunk full = chunk[0];
+                parts.add(CompletableFuture.supplyAsync(() -> full.invert(next)));
+                chunk[0] = new Chunk();
+            }
+        });
+        parts.add(CompletableFuture.completedFuture(chunk[0].invert(next)));
+
+        Map<String, List<LongList>> byTerm = new HashMap<>();
+        for (CompletableFuture<Map<String, LongList>> part : parts) {
+            part.join().forEach((term, ids) -> byTerm.computeIfAbsent(term, t -> new ArrayList<>(1)).add(ids));
+        }
+        byTerm.entrySet().parallelStream()
+                .forEach(e -> next.terms.put(e.getKey(), Postings.of(LongList.sortedDistinct(e.getValue()))));
+        return next;
+    }
+
+    /** Distinct lower-case letter/digit runs of text, in order of first appearance. */
+    static List<String> terms(String text) {
+        if (text == null || text.isEmpty()) return List.of();
+        Set<String> out = new LinkedHashSet<>();
+        StringBuilder term = new StringBuilder();
+        text.codePoints().forEach(cp -> {
+            if (Character.isLetterOrDigit(cp)) {
+                if (term.length() < MAX_TERM_LENGTH) term.appendCodePoint(Character.toLowerCase(cp));
+            } else if (!term.isEmpty()) {
+                out.add(term.toString());
+                term.setLength(0);
+            }
+        });
+        if (!term.isEmpty()) out.add(term.toString());
+        return new ArrayList<>(out);
+    }
+
+    private record Doc(String title, long version) {}
+
+    private static final class Index {
+        final ConcurrentSkipListMap<String, Postings> terms = new ConcurrentSkipListMap<>();
+        final ConcurrentMap<Long, Doc> docs = new ConcurrentHashMap<>();
+
+        // callers hold the write lock
+        void put(long id, String title, long version) {
+            Doc old = docs.get(id);
+            if (old != null && old.version() >= version) return;
+            List<String> before = old == null ? List.of() : terms(old.title());
+            List<String> after = terms(title);
+            docs.put(id, new Doc(title, version));
+            for (String term : before) {
+                if (!after.contains(term)) unlink(term, id);
+            }
+            for (String term : after) {
+                if (!before.contains(term)) terms.computeIfAbsent(term, t -> new Postings()).add(id);
+            }
+        }
+
+        void remove(long id) {
+            Doc old = docs.remove(id);
+            if (old == null) return;
+            for (String term : terms(old.title())) unlink(term, id);
+        }
+
+        private void unlink(String term, long id) {
+            Postings postings = terms.get(term);
+            if (postings != null && postings.remove(id)) terms.remove(term, postings);
+        }
+    }
+
+    // -------------------------------------------------------
+    // Posting list: ascending ids as varint deltas
+    // -------------------------------------------------------
+    static final class Postings {
+        private byte[] bytes = new byte[4];
+        private int length;
+        private int size;
+        private long last;
+
+        static Postings of(long[] sortedDistinct) {
+            Postings p = new Postings();
+            p.bytes = new byte[Math.max(4, sortedDistinct.length * 2)];
+            for (long id : sortedDistinct) p.append(id);
+            return p;
+        }
+
+        synchronized void add(long id) {
+            if (size == 0 || id > last) {
+                append(id);
+                return;
+            }
+            long[] ids = toArray();
+            int at = Arrays.binarySearch(ids, id);
+            if (at >= 0) return;
+            at = -at - 1;
+            long[] grown = new long[ids.length + 1];
+            System.arraycopy(ids, 0, grown, 0, at);
+            grown[at] = id;
+            System.arraycopy(ids, at, grown, at + 1, ids.length - at);
+            reset(grown);
+        }
+
+        /** @return true when the list is empty afterwards */
+        synchronized boolean remove(long id) {
+            long[] ids = toArray();
+            int at = Arrays.binarySearch(ids, id);
+            if (at >= 0) {
+                long[] shrunk = new long[ids.length - 1];
+                System.arraycopy(ids, 0, shrunk, 0, at);
+                System.arraycopy(ids, at + 1, shrunk, at, ids.length - at - 1);
+                reset(shrunk);
+            }
+            return size == 0;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized void forEach(LongConsumer action) {
+            long id = 0;
+            for (int i = 0; i < length; ) {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = bytes[i++];
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                id += delta;
+                action.accept(id);
+            }
+        }
+
+        private long[] toArray() {
+            long[] ids = new long[size];
+            int[] n = {0};
+            forEach(id -> ids[n[0]++] = id);
+            return ids;
+        }
+
+        private void reset(long[] sortedDistinct) {
+            length = 0;
+            size = 0;
+            last = 0;
+            for (long id : sortedDistinct) append(id);
+        }
+
+        private void append(long id) {
+            long delta = size == 0 ? id : id - last;
+            if (length + 10 > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 10));
+            while ((delta & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            bytes[length++] = (byte) delta;
+            last = id;
+            size++;
+        }
+    }
+
+    // -------------------------------------------------------
+    // Rebuild helpers
+    // -------------------------------------------------------
+    private static final class Chunk {
+        final long[] ids = new long[REBUILD_CHUNK];
+        final String[] titles = new String[REBUILD_CHUNK];
+        int size;
+
+        void add(long id, String title) {
+            ids[size] = id;
+            titles[size++] = title;
+        }
+
+        // docs go straight into the new index, postings come back per term
+        Map<String, LongList> invert(Index into) {
+            Map<String, LongList> postings = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                into.docs.put(ids[i], new Doc(titles[i], -1)); // any later edit wins over the rebuilt copy
+                for (String term : terms(titles[i])) postings.computeIfAbsent(term, t -> new LongList()).add(ids[i]);
+            }
+            return postings;
+        }
+    }
+
+    private static final class LongList {
+        long[] values = new long[4];
+        int size;
+
+        void add(long v) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = v;
+        }
+
+        static long[] sortedDistinct(List<LongList> lists) {
+            int total = 0;
+            for (LongList l : lists) total += l.size;
+            long[] all = new long[total];
+            int n = 0;
+            for (LongList l : lists) {
+                System.arraycopy(l.values, 0, all, n, l.size);
+                n += l.size;
+            }
+            Arrays.sort(all);
+            int distinct = 0;
+            for (int i = 0; i < all.length; i++) {
+                if (i == 0 || all[i] != all[i - 1]) all[distinct++] = all[i];
+            }
+            return Arrays.copyOf(all, distinct);
+        }
+    }
+}
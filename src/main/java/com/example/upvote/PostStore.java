@@ -0,0 +1,110 @@
+package com.example.upvote;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+
+/**
+ * Storage of posts behind PostController and the in-memory engines.
+ * Selected with upvote.store:
+ * - jpa (default): JpaPostStore, PostRepository + JDBC batches
+ * - memory:        InMemoryPostStore, no database at all
+ *
+ * Posts handed out are copies; mutating them does not change the store.
+ */
+public interface PostStore {
+
+    enum Sort { TOP, HOT }
+
+    /** False when the backing storage is missing (e.g. DB auto-configuration excluded); endpoints answer 503. */
+    boolean isAvailable();
+
+    Optional<Post> findById(long id);
+
+    /** Insert a new post and return it with its id and createdAt assigned. */
+    Post save(Post post);
+
+    /**
+     * Insert many new posts in one batch (bulk import). Upvotes and createdAt are kept when set;
+     * returns the inserted posts with their ids, in input order.
+     */
+    List<Post> saveAll(List<Post> posts);
+
+    /** @return false when there was no such post */
+    boolean delete(long id);
+
+    // -------------------------------------------------------
+    // Optimistic writes: only applied while the post is still at the given version
+    // (Post.getVersion()), otherwise OptimisticLockingFailureException; see ConflictRetry
+    // -------------------------------------------------------
+
+    /** Set the title and bump the version; empty when there is no such post. */
+    Optional<Post> updateTitle(long id, String title, long version);
+
+    /** @return false when there was no such post */
+    boolean delete(long id, long version);
+
+    /**
+     * Keyset page in (key DESC, id DESC) order, key being upvotes (TOP) or hotScore (HOT).
+     * after == null starts at the top.
+     */
+    List<Post> page(Sort sort, PostPage.Cursor after, int limit);
+
+    /** Whole-store pass for rebuilding in-memory structures, at constant memory. */
+    void forEach(Consumer<PostSummary> action);
+
+    /** Apply aggregated vote deltas (postId -> delta) in one batch. */
+    void addUpvotes(Map<Long, Long> deltas);
+
+    /** +1 as one atomic statement (write-through votes); the count after it, empty when the post does not exist. */
+    OptionalLong incrementUpvotes(long id);
+
+    /** -1 as one atomic statement, never below zero; the count after it, empty when the post does not exist. */
+    OptionalLong decrementUpvotesFloorZero(long id);
+
+    // -------------------------------------------------------
+    // Replicated counters (VoteCounter with upvote.cluster.enabled): each node persists its own
+    // PN-counter slots, and post.upvotes moves with them, so it stays the total across nodes
+    // -------------------------------------------------------
+
+    /** Persisted count and slots of a post, read in one statement. */
+    record CounterState(long id, long upvotes, List<PnCounter.Slot> slots) {
+        /** The count without any slot's votes: the same on every node, whenever it was read. */
+        long base() {
+            long base = upvotes;
+            for (PnCounter.Slot s : slots) base -= s.p() - s.n();
+            return base;
+        }
+    }
+
+    /** One node's slot of one post: absolute p / n, and the net change since its last save. */
+    record SlotWrite(long postId, long p, long n, long delta, boolean created) {}
+
+    /** CounterState of every existing post among ids. */
+    List<CounterState> counterStates(Collection<Long> ids);
+
+    /** In one transaction: the node's slot rows, and each post's upvotes moved by its delta. Gone posts are skipped. */
+    void saveSlots(String node, List<SlotWrite> writes);
+
+    // -------------------------------------------------------
+    // Hot ranking (HotRanker)
+    // -------------------------------------------------------
+
+    List<PostAge> ages(Collection<Long> ids);
+
+    /**
+     * One page of the posts created after since, or at since with an id above afterId, in (createdAt, id) order.
+     * The first page is createdAfter(cutoff, Long.MAX_VALUE, limit); each next one starts at the last row's
+     * createdAt and id.
+     */
+    List<PostAge> createdAfter(Instant since, long afterId, int limit);
+
+    void updateHotScores(Map<Long, Double> scores);
+
+    /** Zero the score of every post created before the cutoff; returns the number of rows changed. */
+    int expireHotScores(Instant cutoff);
+}
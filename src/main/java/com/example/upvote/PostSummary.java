@@ -0,0 +1,18 @@
+package com.example.upvote;
+
+import java.time.Instant;
+
+/**
+ * Read-only projection of a post row. Streaming it instead of Post keeps
+ * whole-table passes out of the persistence context.
+ */
+public interface PostSummary {
+
+    Long getId();
+
+    String getTitle();
+
+    int getUpvotes();
+
+    Instant getCreatedAt();
+}
@@ -0,0 +1,277 @@
+package com.example.upvote;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bulk transfer of posts as NDJSON (one JSON object per line):
+ * - POST /posts/import: {"title": "...", "upvotes": 3, "createdAt": "2024-01-01T00:00:00Z"} per line,
+ *   inserted upvote.import.batch-size lines at a time
+ * - GET /posts/export: {"id", "title", "upvotes", "createdAt"} per line, written while the table is walked
+ * Both run at constant memory, whatever the number of posts. An import line is read into a fixed
+ * MAX_LINE_BYTES buffer; a longer one is skipped to its newline and reported as rejected.
+ * Import requires a signed-in user (SecurityConfig); export is public like the other reads.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/posts")
+public class PostTransferController {
+
+    private static final Logger log = LoggerFactory.getLogger(PostTransferController.class);
+
+    static final int MAX_TITLE_LENGTH = 255; // post.title column
+    private static final int MAX_REPORTED_ERRORS = 100;
+    // a post is a 255-character title and two fields: anything near this is not one, and is never buffered whole
+    static final int MAX_LINE_BYTES = 64 * 1024;
+
+    private final PostStore store;
+    private final VoteCounter counter;
+    private final Leaderboard leaderboard;
+    private final PostSearchIndex search;
+    private final PostChangeLog changes;
+    private final PostEvents events;
+    private final HotRanker hotRanker;
+    private final ObjectMapper mapper;
+    private final int batchSize;
+    // imports in progress; each one holds a connection and a request thread while it runs
+    private final Semaphore importSlots;
+
+    public PostTransferController(PostStore store, VoteCounter counter, Leaderboard leaderboard,
+                                  PostSearchIndex search, PostChangeLog changes, PostEvents events,
+                                  HotRanker hotRanker, ObjectMapper mapper,
+                                  @Value("${upvote.import.batch-size:1000}") int batchSize,
+                                  @Value("${upvote.import.max-concurrent:2}") int maxConcurrent) {
+        this.store = store;
+        this.counter = counter;
+        this.leaderboard = leaderboard;
+        this.search = search;
+        this.changes = changes;
+        this.events = events;
+        this.hotRanker = hotRanker;
+        this.mapper = mapper;
+        this.batchSize = batchSize;
+        this.importSlots = new Semaphore(maxConcurrent);
+    }
+
+    /** One NDJSON line of an import. */
+    public record ImportedPost(String title, Integer upvotes, Instant createdAt) {}
+
+    // -------------------------------------------------------
+    // Import: the body is read one batch ahead of the inserts, so a client sending faster
+    // than the database writes is held back by TCP flow control (nothing piles up in memory)
+    // -------------------------------------------------------
+    @PostMapping("/import")
+    public ResponseEntity<?> importPosts(InputStream body) throws IOException {
+        if (!store.isAvailable()) return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        if (!importSlots.tryAcquire()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(Map.of("error", "Too many imports in progress"));
+        }
+
+        long imported = 0;
+        long rejected = 0;
+        long lineNo = 0;
+        List<Map<String, Object>> errors = new ArrayList<>();
+        List<Post> batch = new ArrayList<>(batchSize);
+        try (body) {
+            LineReader reader = new LineReader(body, MAX_LINE_BYTES);
+            while (reader.next()) {
+                lineNo++;
+                if (reader.isBlank()) continue;
+
+                String problem;
+                if (reader.tooLong()) {
+                    problem = "Line longer than " + MAX_LINE_BYTES + " bytes";
+                } else {
+                    try {
+                        ImportedPost in = mapper.readValue(reader.line(), 0, reader.length(), ImportedPost.class);
+                        problem = validate(in);
+                        if (problem == null) {
+                            batch.add(Post.restore(null, in.title(), in.upvotes() == null ? 0 : in.upvotes(), in.createdAt(), 0));
+                        }
+                    } catch (IOException e) {
+                        problem = "Malformed JSON";
+                    }
+                }
+                if (problem != null) {
+                    rejected++;
+                    if (errors.size() < MAX_REPORTED_ERRORS) errors.add(Map.of("line", lineNo, "error", problem));
+                }
+
+                if (batch.size() >= batchSize) {
+                    imported += insert(batch);
+                }
+            }
+            imported += insert(batch);
+        } catch (RuntimeException e) {
+            // batches before this one are committed; report where the import stopped
+            log.warn("Import failed near line {} after {} posts: {}", lineNo, imported, e.getMessage());
+            Map<String, Object> resp = summary(imported, rejected, errors);
+            resp.put("failedNearLine", lineNo);
+            resp.put("error", "Insert failed");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(resp);
+        } finally {
+            importSlots.release();
+        }
+
+        log.info("Imported {} posts ({} lines rejected)", imported, rejected);
+        return ResponseEntity.ok(summary(imported, rejected, errors));
+    }
+
+    // -------------------------------------------------------
+    // Export: walks the store with a forward-only cursor (PostStore.forEach), rows go
+    // straight to the response stream with live counts
+    // -------------------------------------------------------
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export() {
+        if (!store.isAvailable()) return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+
+        StreamingResponseBody body = out -> {
+            JsonGenerator gen = mapper.getFactory().createGenerator(out);
+            gen.setRootValueSeparator(null);
+            try {
+                store.forEach(p -> {
+                    try {
+                        gen.writeStartObject();
+                        gen.writeNumberField("id", p.getId());
+                        gen.writeStringField("title", p.getTitle());
+                        OptionalLong live = counter.peek(p.getId());
+                        gen.writeNumberField("upvotes", live.isPresent() ? live.getAsLong() : p.getUpvotes());
+                        if (p.getCreatedAt() != null) gen.writeStringField("createdAt", p.getCreatedAt().toString());
+                        gen.writeEndObject();
+                        gen.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause(); // client went away: stops the walk and releases the cursor
+            }
+            gen.flush();
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"posts.ndjson\"")
+                .body(body);
+    }
+
+    // -------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------
+
+    private static String validate(ImportedPost in) {
+        if (in == null || in.title() == null || in.title().isBlank()) return "Missing title";
+        if (in.title().length() > MAX_TITLE_LENGTH) return "Title longer than " + MAX_TITLE_LENGTH;
+        if (in.upvotes() != null && in.upvotes() < 0) return "Negative upvotes";
+        return null;
+    }
+
+    // one batch insert; new posts join the leaderboard, the search index, the change log and the live stream like
+    // single creates do. A post imported with upvotes is marked for the hot ranker (with none it scores 0 already)
+    private int insert(List<Post> batch) {
+        if (batch.isEmpty()) return 0;
+        List<Post> saved = store.saveAll(batch);
+        for (Post p : saved) {
+            leaderboard.put(p);
+            search.put(p);
+            changes.created(p.getId());
+            events.created(p);
+            if (p.getUpvotes() > 0) hotRanker.markActive(p.getId());
+        }
+        batch.clear();
+        return saved.size();
+    }
+
+    // NDJSON lines as UTF-8 bytes (a newline byte never occurs inside a multi-byte character), at most max
+    // bytes each: the rest of a longer line is read past, not kept
+    private static final class LineReader {
+        private final InputStream in;
+        private final byte[] buf = new byte[8192];
+        private int pos;
+        private int limit;
+        private final byte[] line;
+        private int length;
+        private boolean tooLong;
+
+        LineReader(InputStream in, int max) {
+            this.in = in;
+            this.line = new byte[max];
+        }
+
+        /** Advance to the next line; false at the end of the body. */
+        boolean next() throws IOException {
+            length = 0;
+            tooLong = false;
+            boolean any = false;
+            while (true) {
+                if (pos == limit) {
+                    limit = in.read(buf);
+                    pos = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        return any;
+                    }
+                }
+                any = true;
+                byte b = buf[pos++];
+                if (b == '\n') break;
+                if (length < line.length) line[length++] = b;
+                else tooLong = true;
+            }
+            if (!tooLong && length > 0 && line[length - 1] == '\r') length--;
+            return true;
+        }
+
+        byte[] line() {
+            return line;
+        }
+
+        int length() {
+            return length;
+        }
+
+        boolean tooLong() {
+            return tooLong;
+        }
+
+        boolean isBlank() {
+            if (tooLong) return false;
+            for (int i = 0; i < length; i++) {
+                if (!Character.isWhitespace(line[i])) return false;
+            }
+            return true;
+        }
+    }
+
+    private static Map<String, Object> summary(long imported, long rejected, List<Map<String, Object>> errors) {
+        Map<String, Object> resp = new LinkedHashMap<>();
+        resp.put("imported", imported);
+        resp.put("rejected", rejected);
+        resp.put("errors", errors);
+        return resp;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.upvote;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RateLimitFilter: token buckets (RateLimiter) in front of the write endpoints that cost the most.
+ * - votes: POST/DELETE /posts/{id}/upvote and POST /posts/votes:batch, per principal (per client
+ *   address while anonymous). A batch takes one token here like any vote, and PostController bills the rest
+ *   (chargeBatch) once it has counted the ops: one token per upvote.rate-limit.votes.batch-ops-per-token
+ * - auth: POST /auth/register and POST /perform_login, per client address (there is no principal yet,
+ *   and these are what reach AppUserService, BCrypt and the database)
+ * - search: GET /posts/search, per principal or client address; public, and each query walks posting lists
+ * Installed in SecurityConfig right after the security context is loaded from the session, i.e. before
+ * any authentication filter or controller touches a repository. Over the limit: 429 with Retry-After
+ * (whole seconds), counted in "upvote.ratelimit.rejected" by rule; rejected votes are also recorded in
+ * EndpointMetrics (outcome=rejected), since they never reach the handler the interceptor times.
+ * Everything else passes through on a method and path check. Paths are matched decoded and without ;params, as
+ * Spring MVC maps them, so /posts/1/%75pvote is the same vote as /posts/1/upvote. The client address is getRemoteAddr(); behind
+ * a proxy set server.forward-headers-strategy so it is the caller's, not the proxy's.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "upvote.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final byte[] REJECTED_BODY = "{\"error\":\"Too many requests\"}".getBytes();
+
+    private final RateLimiter votes;
+    private final RateLimiter auth;
+    private final RateLimiter search;
+    private final int batchOpsPerToken;
+    private final Counter votesRejected;
+    private final Counter authRejected;
+    private final Counter searchRejected;
+    private final EndpointMetrics endpoints;
+
+    public RateLimitFilter(MeterRegistry registry, EndpointMetrics endpoints,
+                           @Value("${upvote.rate-limit.votes.capacity:20}") int votesCapacity,
+                           @Value("${upvote.rate-limit.votes.per-second:10}") double votesPerSecond,
+                           @Value("${upvote.rate-limit.votes.batch-ops-per-token:50}") int batchOpsPerToken,
+                           @Value("${upvote.rate-limit.auth.capacity:5}") int authCapacity,
+                           @Value("${upvote.rate-limit.auth.per-second:0.5}") double authPerSecond,
+                           @Value("${upvote.rate-limit.search.capacity:20}") int searchCapacity,
+                           @Value("${upvote.rate-limit.search.per-second:5}") double searchPerSecond,
+                           @Value("${upvote.rate-limit.max-keys:100000}") int maxKeys,
+                           @Value("${upvote.rate-limit.idle-ms:600000}") long idleMs) {
+        this.votes = new RateLimiter(votesCapacity, votesPerSecond, maxKeys, idleMs);
+        this.auth = new RateLimiter(authCapacity, authPerSecond, maxKeys, idleMs);
+        this.search = new RateLimiter(searchCapacity, searchPerSecond, maxKeys, idleMs);
+        this.batchOpsPerToken = Math.max(1, batchOpsPerToken);
+        this.votesRejected = Counter.builder("upvote.ratelimit.rejected").tag("rule", "votes").register(registry);
+        this.authRejected = Counter.builder("upvote.ratelimit.rejected").tag("rule", "auth").register(registry);
+        this.searchRejected = Counter.builder("upvote.ratelimit.rejected").tag("rule", "search").register(registry);
+        this.endpoints = endpoints;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String method = request.getMethod();
+        if (!"POST".equals(method) && !"DELETE".equals(method) && !"GET".equals(method)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long start = System.nanoTime();
+        String path = UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+
+        long waitNanos = 0;
+        if ("GET".equals(method)) {
+            if (path.equals("/posts/search")) {
+                waitNanos = search.acquire(caller(request));
+                if (waitNanos > 0) searchRejected.increment();
+            }
+        } else if (isVote(path)) {
+            waitNanos = votes.acquire(caller(request));
+            if (waitNanos > 0) {
+                votesRejected.increment();
+                endpoints.rejected(endpoint(method, path), System.nanoTime() - start);
+            }
+        } else if ("POST".equals(method) && (path.equals("/auth/register") || path.equals("/perform_login"))) {
+            waitNanos = auth.acquire(request.getRemoteAddr());
+            if (waitNanos > 0) authRejected.increment();
+        }
+
+        if (waitNanos > 0) {
+            reject(response, waitNanos);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * Bill an admitted POST /posts/votes:batch for its size: the ops beyond the first batchOpsPerToken, which the
+     * request paid for on its way in. Never refuses; the bucket goes into debt and the caller's next votes wait.
+     */
+    public void chargeBatch(HttpServletRequest request, int ops) {
+        votes.charge(caller(request), (ops + batchOpsPerToken - 1) / batchOpsPerToken - 1);
+    }
+
+    // -------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------
+
+    private static boolean isVote(String path) {
+        return path.startsWith("/posts/") && (path.endsWith("/upvote") || path.equals("/posts/votes:batch"));
+    }
+
+    // the PostController method the vote was meant for, as EndpointMetrics tags it
+    private static String endpoint(String method, String path) {
+        if (path.equals("/posts/votes:batch")) return "voteBatch";
+        return "DELETE".equals(method) ? "removeUpvote" : "upvote";
+    }
+
+    // principals and addresses share one bucket table, so keep their keys apart
+    private static String caller(HttpServletRequest request) {
+        Authentication a = SecurityContextHolder.getContext().getAuthentication();
+        if (a == null || !a.isAuthenticated() || a instanceof AnonymousAuthenticationToken) {
+            return "ip:" + request.getRemoteAddr();
+        }
+        return "user:" + a.getName();
+    }
+
+    private static void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long seconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(REJECTED_BODY.length);
+        response.getOutputStream().write(REJECTED_BODY);
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.upvote;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token buckets by key (a principal or a client address), for RateLimitFilter:
+ * - a bucket holds up to capacity tokens and refills at perSecond; a request takes one
+ * - charge() bills work priced only after admission (a vote batch, once its ops are counted): the bucket
+ *   may go below zero, and the debt holds back the key's next requests until it is refilled
+ * - buckets live in a fixed number of lock stripes, each an access-ordered LinkedHashMap, so a
+ *   lookup is one short critical section on one stripe and no timer or sweeper thread is needed
+ * - bounded: a stripe keeps at most maxKeys / STRIPES buckets. Only a bucket that has refilled to capacity is
+ *   ever dropped, so forgetting one never hands out extra tokens or forgives a debt: a client cannot flush its
+ *   own drained bucket out with a burst of new keys (addresses, principals). A full stripe of active buckets
+ *   turns new keys away until its least recently used bucket has refilled
+ * - idle eviction is amortized on access: the eldest buckets of the stripe are dropped once they have
+ *   been idle for idleMs and are full again
+ */
+final class RateLimiter {
+
+    private static final int STRIPES = 64;
+    // idle buckets dropped per access, at most
+    private static final int EVICT_PER_ACCESS = 2;
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final long idleNanos;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    RateLimiter(int capacity, double perSecond, int maxKeys, long idleMs) {
+        if (capacity < 1 || perSecond <= 0) throw new IllegalArgumentException("capacity >= 1 and perSecond > 0");
+        this.capacity = capacity;
+        this.tokensPerNano = perSecond / TimeUnit.SECONDS.toNanos(1);
+        long refillNanos = (long) Math.ceil(capacity / tokensPerNano);
+        this.idleNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(idleMs), refillNanos);
+        int perStripe = Math.max(1, maxKeys / STRIPES);
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe(perStripe);
+    }
+
+    /** Take a token for key; returns 0 when admitted, otherwise the nanos until a token is available. */
+    long acquire(String key) {
+        return acquire(key, System.nanoTime());
+    }
+
+    long acquire(String key, long now) {
+        Stripe s = stripe(key);
+        synchronized (s) {
+            Bucket b = bucket(s, key, now);
+            if (b == null) return s.nanosUntilRoom(now);
+            if (b.tokens >= 1) {
+                b.tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - b.tokens) / tokensPerNano));
+        }
+    }
+
+    /** Take tokens for key without a check, going into debt if need be. */
+    void charge(String key, int tokens) {
+        charge(key, tokens, System.nanoTime());
+    }
+
+    void charge(String key, int tokens, long now) {
+        if (tokens <= 0) return;
+        Stripe s = stripe(key);
+        synchronized (s) {
+            Bucket b = bucket(s, key, now);
+            if (b != null) b.tokens -= tokens; // no bucket: the key was never admitted, there is nothing to bill
+        }
+    }
+
+    int size() {
+        int n = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                n += s.size();
+            }
+        }
+        return n;
+    }
+
+    // the key's bucket refilled up to now, created full on first use; null when the stripe is full of
+    // buckets that have not refilled yet (stripe lock held)
+    private Bucket bucket(Stripe s, String key, long now) {
+        Bucket b = s.get(key);
+        if (b == null) {
+            s.evictIdle(now);
+            if (s.size() >= s.maxSize && !s.evictRefilled(now)) return null;
+            b = new Bucket(capacity, now);
+            s.put(key, b);
+        } else {
+            b.refill(now, capacity, tokensPerNano);
+        }
+        return b;
+    }
+
+    private Stripe stripe(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    // -------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------
+
+    private static final class Bucket {
+        double tokens;
+        long stamp;
+
+        Bucket(double tokens, long stamp) {
+            this.tokens = tokens;
+            this.stamp = stamp;
+        }
+
+        void refill(long now, double capacity, double tokensPerNano) {
+            long elapsed = now - stamp;
+            if (elapsed <= 0) return;
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+            stamp = now;
+        }
+    }
+
+    private final class Stripe extends LinkedHashMap<String, Bucket> {
+        private final int maxSize;
+
+        Stripe(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        void evictIdle(long now) {
+            Iterator<Bucket> it = values().iterator();
+            for (int i = 0; i < EVICT_PER_ACCESS && it.hasNext(); i++) {
+                Bucket b = it.next();
+                long idle = now - b.stamp;
+                if (idle < idleNanos || !refilled(b, now)) return;
+                it.remove();
+            }
+        }
+
+        // make room for a new key: drop one of the least recently used buckets if it is full again
+        boolean evictRefilled(long now) {
+            Iterator<Bucket> it = values().iterator();
+            for (int i = 0; i < EVICT_PER_ACCESS && it.hasNext(); i++) {
+                if (refilled(it.next(), now)) {
+                    it.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // until the least recently used bucket has refilled: when a new key may try again
+        long nanosUntilRoom(long now) {
+            Bucket eldest = values().iterator().next();
+            double missing = capacity - (eldest.tokens + (now - eldest.stamp) * tokensPerNano);
+            return Math.max(1, (long) Math.ceil(missing / tokensPerNano));
+        }
+
+        private boolean refilled(Bucket b, long now) {
+            return b.tokens + (now - b.stamp) * tokensPerNano >= capacity;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.upvote;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * LoginController for the reactive stack: POST /auth/register into app_user over R2DBC.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/auth")
+public class ReactiveLoginController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveLoginController.class);
+
+    private final ReactiveUserStore users;
+
+    public ReactiveLoginController(ReactiveUserStore users) {
+        this.users = users;
+    }
+
+    // POST /auth/register  Content-Type: application/json
+    @PostMapping(value = "/register", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<String>> register(@RequestBody LoginController.RegisterRequest req) {
+        if (req.getUsername() == null || req.getUsername().isBlank() || req.getPassword() == null) {
+            return Mono.just(ResponseEntity.badRequest().body("Username and password required"));
+        }
+        return users.register(req.getUsername(), req.getPassword())
+                .doOnNext(id -> log.info("Registered user id={}, username={}", id, req.getUsername()))
+                .map(id -> ResponseEntity.status(HttpStatus.CREATED).body("User received"))
+                .onErrorResume(DataIntegrityViolationException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).body("Username already exists")));
+    }
+
+    // hashing executor saturated: tell the client to back off instead of failing with 500
+    @ExceptionHandler(PasswordHashingRejectedException.class)
+    public ResponseEntity<String> hashingRejected(PasswordHashingRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Too many requests, retry shortly");
+    }
+}
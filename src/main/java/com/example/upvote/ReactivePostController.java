@@ -0,0 +1,242 @@
+package com.example.upvote;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reactive variant of PostController (reactive profile): same routes and payloads, WebFlux on R2DBC.
+ * Nothing here blocks; a handful of event-loop threads serve every connection, and a database
+ * connection is only taken for the duration of a statement.
+ * GET /posts additionally streams every post as NDJSON (Accept: application/x-ndjson), with backpressure.
+ * No /posts/search here: PostSearchIndex ranks by the Leaderboard, which only the servlet stack keeps.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/posts")
+public class ReactivePostController {
+
+    // votes:batch posts in flight at once (each is one short transaction)
+    private static final int BATCH_CONCURRENCY = 8;
+
+    private final ReactivePostStore store;
+    private final ReactivePostEvents events;
+
+    public ReactivePostController(ReactivePostStore store, ReactivePostEvents events) {
+        this.store = store;
+        this.events = events;
+    }
+
+    // -------------------------------------------------------
+    // List posts, one keyset page at a time (sort=top|hot, see PostController.all)
+    // -------------------------------------------------------
+    @GetMapping
+    public Mono<ResponseEntity<?>> all(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + PostController.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(defaultValue = "top") String sort
+    ) {
+        boolean hot = "hot".equals(sort);
+        if (!hot && !"top".equals(sort)) return Mono.just(ResponseEntity.badRequest().body(Map.of("error", "Unknown sort")));
+
+        PostPage.Cursor after;
+        try {
+            after = cursor == null || cursor.isBlank() ? null : PostPage.Cursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.badRequest().body(Map.of("error", "Invalid cursor")));
+        }
+
+        int limit = Math.max(1, Math.min(size, PostController.MAX_PAGE_SIZE));
+        // one extra row tells us whether there is a next page
+        return store.page(hot ? PostStore.Sort.HOT : PostStore.Sort.TOP, after, limit + 1)
+                .collectList()
+                .map(rows -> {
+                    String next = null;
+                    if (rows.size() > limit) {
+                        rows = rows.subList(0, limit);
+                        Post last = rows.get(limit - 1);
+                        next = new PostPage.Cursor(hot ? last.getHotScore() : last.getUpvotes(), last.getId()).encode();
+                    }
+                    return ResponseEntity.ok(new PostPage(rows, next));
+                });
+    }
+
+    // -------------------------------------------------------
+    // Every post, top order, one JSON object per line: rows leave the database cursor
+    // only as fast as the client reads them
+    // -------------------------------------------------------
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Post> stream() {
+        return store.all();
+    }
+
+    // -------------------------------------------------------
+    // Top n posts by upvotes (same entries as the servlet leaderboard, read from the index)
+    // -------------------------------------------------------
+    @GetMapping("/top")
+    public Flux<Leaderboard.Entry> top(@RequestParam(defaultValue = "10") int n) {
+        return store.page(PostStore.Sort.TOP, null, Math.max(1, Math.min(n, PostController.MAX_PAGE_SIZE)))
+                .map(p -> new Leaderboard.Entry(p.getId(), p.getTitle(), p.getUpvotes()));
+    }
+
+    // -------------------------------------------------------
+    // Live changes (SSE): coalesced "posts" events, see ReactivePostEvents
+    // -------------------------------------------------------
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> changes() {
+        return events.subscribe();
+    }
+
+    // -------------------------------------------------------
+    // Get a single post
+    // -------------------------------------------------------
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Post>> get(@PathVariable Long id) {
+        return store.findById(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    // -------------------------------------------------------
+    // Create a post
+    // -------------------------------------------------------
+    @PostMapping
+    public Mono<ResponseEntity<Post>> create(@RequestBody Post p) {
+        return store.insert(p.getTitle())
+                .doOnNext(events::created)
+                .map(saved -> ResponseEntity.status(HttpStatus.CREATED).body(saved));
+    }
+
+    // -------------------------------------------------------
+    // EDIT a post's title (see PostController.update); one conditional UPDATE, nothing to retry
+    // -------------------------------------------------------
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<?>> update(@PathVariable Long id, @RequestBody PostController.PostEdit edit) {
+        if (edit == null || edit.title() == null || edit.title().isBlank()) {
+            return Mono.just(ResponseEntity.badRequest().body(Map.of("error", "Title required")));
+        }
+        return store.updateTitle(id, edit.title(), edit.version())
+                .doOnNext(events::updated)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .switchIfEmpty(Mono.defer(() -> conflict(id)));
+    }
+
+    // -------------------------------------------------------
+    // UPVOTE / REMOVE UPVOTE (one vote per user; atomic UPDATE, the entity is never loaded)
+    // -------------------------------------------------------
+    @PostMapping("/{id}/upvote")
+    public Mono<ResponseEntity<Map<String, Object>>> upvote(@PathVariable Long id,
+                                                            @AuthenticationPrincipal ReactiveUserStore.Voter voter) {
+        if (voter == null) return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+        return voted(id, store.upvote(id, voter.getId()));
+    }
+
+    @DeleteMapping("/{id}/upvote")
+    public Mono<ResponseEntity<Map<String, Object>>> removeUpvote(@PathVariable Long id,
+                                                                  @AuthenticationPrincipal ReactiveUserStore.Voter voter) {
+        if (voter == null) return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+        return voted(id, store.unvote(id, voter.getId()));
+    }
+
+    // -------------------------------------------------------
+    // BATCH votes of the caller (same netting and per-item results as PostController.voteBatch)
+    // -------------------------------------------------------
+    @PostMapping("/votes:batch")
+    public Mono<ResponseEntity<?>> voteBatch(@RequestBody List<PostController.VoteOp> ops,
+                                             @AuthenticationPrincipal ReactiveUserStore.Voter voter) {
+        if (voter == null) return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+        if (ops == null || ops.size() > PostController.MAX_BATCH_OPS) {
+            return Mono.just(ResponseEntity.badRequest()
+                    .body(Map.of("error", "Between 0 and " + PostController.MAX_BATCH_OPS + " ops per batch")));
+        }
+
+        // net: index of the winning (last) op per post
+        Map<Long, Integer> winner = new LinkedHashMap<>();
+        List<Map<String, Object>> results = new ArrayList<>(ops.size());
+        for (int i = 0; i < ops.size(); i++) {
+            PostController.VoteOp op = ops.get(i);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("index", i);
+            if (op == null || op.postId() == null || op.up() == null) {
+                result.put("status", "invalid");
+            } else {
+                result.put("postId", op.postId());
+                Integer previous = winner.put(op.postId(), i);
+                if (previous != null) results.get(previous).put("status", "superseded");
+            }
+            results.add(result);
+        }
+
+        // each winning op fills in its own result map
+        return Flux.fromIterable(winner.entrySet())
+                .flatMap(e -> {
+                    Map<String, Object> result = results.get(e.getValue());
+                    long id = e.getKey();
+                    boolean up = ops.get(e.getValue()).up();
+                    return (up ? store.upvote(id, voter.getId()) : store.unvote(id, voter.getId()))
+                            .doOnNext(r -> {
+                                if (r.changed()) events.countChanged(id, r.count());
+                                result.put("status", r.changed() ? "applied" : "unchanged");
+                                result.put("count", r.count());
+                                result.put("upvoted", r.upvoted());
+                            })
+                            .switchIfEmpty(Mono.fromRunnable(() -> result.put("status", "not_found")));
+                }, BATCH_CONCURRENCY)
+                .then(Mono.fromSupplier(() -> ResponseEntity.ok(Map.of("results", results))));
+    }
+
+    // -------------------------------------------------------
+    // DELETE a post (and its votes); ?version=3 only deletes that version
+    // -------------------------------------------------------
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Map<String, Object>>> deletePost(@PathVariable Long id,
+                                                               @RequestParam(required = false) Long version) {
+        return store.delete(id, version).flatMap(deleted -> {
+            if (!deleted) {
+                return version == null
+                        ? Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).<Map<String, Object>>build())
+                        : conflict(id);
+            }
+            events.deleted(id);
+            Map<String, Object> resp = new HashMap<>();
+            resp.put("deleted", true);
+            resp.put("id", id);
+            return Mono.just(ResponseEntity.ok(resp));
+        });
+    }
+
+    // a conditional write matched nothing: 409 with the current post, or 404 when there is none
+    private Mono<ResponseEntity<Map<String, Object>>> conflict(long id) {
+        return store.findById(id)
+                .map(current -> {
+                    Map<String, Object> resp = new HashMap<>();
+                    resp.put("error", "Post was changed concurrently");
+                    resp.put("current", current);
+                    return ResponseEntity.status(HttpStatus.CONFLICT).body(resp);
+                })
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+
+    private Mono<ResponseEntity<Map<String, Object>>> voted(long id, Mono<ReactivePostStore.VoteResult> vote) {
+        return vote.map(r -> {
+                    if (r.changed()) events.countChanged(id, r.count());
+                    Map<String, Object> resp = new HashMap<>();
+                    resp.put("count", r.count());
+                    resp.put("upvoted", r.upvoted());
+                    return ResponseEntity.ok(resp);
+                })
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+}
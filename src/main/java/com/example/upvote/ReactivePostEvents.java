@@ -0,0 +1,94 @@
+package com.example.upvote;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ReactivePostEvents: PostEvents for the reactive stack (/posts/stream as a Flux of ServerSentEvents)
+ * - same payloads and per-post coalescing as PostEvents, one "posts" event per window
+ * - one shared window ticker for all subscribers; it only runs while someone is subscribed
+ * - a subscriber that stops reading overflows its buffer and is dropped (like a dead SseEmitter)
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactivePostEvents {
+
+    // windows a slow subscriber may fall behind before it is disconnected
+    private static final int MAX_BUFFERED_WINDOWS = 256;
+
+    private final Duration heartbeat;
+    // latest change per post id since the last window
+    private final ConcurrentMap<Long, Map<String, Object>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Flux<List<Map<String, Object>>> windows;
+
+    public ReactivePostEvents(@Value("${upvote.stream.window-ms:200}") long windowMs,
+                              @Value("${upvote.stream.heartbeat-ms:15000}") long heartbeatMs) {
+        this.heartbeat = Duration.ofMillis(heartbeatMs);
+        this.windows = Flux.interval(Duration.ofMillis(windowMs))
+                .onBackpressureDrop() // the next tick drains whatever a dropped one would have
+                .map(tick -> drain())
+                .filter(batch -> !batch.isEmpty())
+                .share();
+    }
+
+    // -------------------------------------------------------
+    // Subscribers
+    // -------------------------------------------------------
+
+    public Flux<ServerSentEvent<Object>> subscribe() {
+        Flux<ServerSentEvent<Object>> posts = windows
+                .map(batch -> ServerSentEvent.<Object>builder(batch).event("posts").build());
+        // keeps idle connections (and proxies in between) from timing out
+        Flux<ServerSentEvent<Object>> pings = Flux.interval(heartbeat)
+                .map(tick -> ServerSentEvent.<Object>builder().comment("ping").build());
+        return Flux.merge(posts, pings)
+                .onBackpressureBuffer(MAX_BUFFERED_WINDOWS) // overflow errors the subscription
+                .doOnSubscribe(s -> subscribers.incrementAndGet())
+                .doFinally(signal -> subscribers.decrementAndGet());
+    }
+
+    public int subscriberCount() {
+        return subscribers.get();
+    }
+
+    // -------------------------------------------------------
+    // Publish hooks (nothing is kept while nobody listens)
+    // -------------------------------------------------------
+
+    public void created(Post post) {
+        if (subscribers.get() > 0) pending.put(post.getId(), PostEvents.createdChange(post));
+    }
+
+    public void updated(Post post) {
+        if (subscribers.get() > 0) pending.merge(post.getId(), PostEvents.updatedChange(post), PostEvents::coalesce);
+    }
+
+    public void countChanged(long postId, long upvotes) {
+        if (subscribers.get() > 0) pending.merge(postId, PostEvents.countChange(postId, upvotes), PostEvents::coalesce);
+    }
+
+    public void deleted(long postId) {
+        if (subscribers.get() > 0) pending.put(postId, PostEvents.deletedChange(postId));
+    }
+
+    private List<Map<String, Object>> drain() {
+        List<Map<String, Object>> batch = new ArrayList<>(pending.size());
+        for (Long id : pending.keySet()) {
+            Map<String, Object> change = pending.remove(id);
+            if (change != null) batch.add(change);
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.upvote;
+
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * ReactivePostStore: the post and post_vote tables over R2DBC (reactive stack).
+ * - reads stream rows as the subscriber requests them (fetch size = upvote.reactive.fetch-size)
+ * - votes never load the entity: one conditional INSERT into post_vote (the unique (post_id, user_id)
+ *   constraint stays the guard against double votes) and one "upvotes = upvotes + 1" UPDATE,
+ *   in one transaction
+ * - title edits and deletes are single statements, conditional on Post.version when the client sent one
+ * No write-behind here: every vote is its own short transaction, so counts are exact in the table.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactivePostStore {
+
+    static final String COLUMNS = "SELECT id, title, upvotes, created_at, hot_score, version FROM post";
+    static final String TOP_SQL = COLUMNS + " ORDER BY upvotes DESC, id DESC";
+    static final String TOP_PAGE_SQL = COLUMNS + " ORDER BY upvotes DESC, id DESC LIMIT :limit";
+    static final String TOP_AFTER_SQL = COLUMNS + " WHERE upvotes < :key OR (upvotes = :key AND id < :id)"
+            + " ORDER BY upvotes DESC, id DESC LIMIT :limit";
+    static final String HOT_PAGE_SQL = COLUMNS + " ORDER BY hot_score DESC, id DESC LIMIT :limit";
+    static final String HOT_AFTER_SQL = COLUMNS + " WHERE hot_score < :key OR (hot_score = :key AND id < :id)"
+            + " ORDER BY hot_score DESC, id DESC LIMIT :limit";
+    static final String FIND_SQL = COLUMNS + " WHERE id = :id";
+    static final String COUNT_SQL = "SELECT upvotes FROM post WHERE id = :id";
+    static final String INSERT_SQL = "INSERT INTO post (title, upvotes, created_at, hot_score) VALUES (:title, 0, :createdAt, 0)";
+    static final String DELETE_SQL = "DELETE FROM post WHERE id = :id";
+    static final String DELETE_IF_SQL = DELETE_SQL + " AND version = :version";
+    static final String UPDATE_TITLE_SQL = "UPDATE post SET title = :title, version = version + 1 WHERE id = :id";
+    static final String UPDATE_TITLE_IF_SQL = UPDATE_TITLE_SQL + " AND version = :version";
+    static final String DELETE_VOTES_SQL = "DELETE FROM post_vote WHERE post_id = :id";
+
+    // inserts nothing when the post does not exist or the user already voted on it
+    static final String VOTE_SQL = "INSERT INTO post_vote (post_id, user_id) SELECT id, :userId FROM post WHERE id = :postId"
+            + " AND NOT EXISTS (SELECT 1 FROM post_vote WHERE post_id = :postId AND user_id = :userId)";
+    static final String UNVOTE_SQL = "DELETE FROM post_vote WHERE post_id = :postId AND user_id = :userId";
+    static final String INCREMENT_SQL = "UPDATE post SET upvotes = upvotes + 1 WHERE id = :id";
+    static final String DECREMENT_SQL = "UPDATE post SET upvotes = CASE WHEN upvotes > 0 THEN upvotes - 1 ELSE 0 END WHERE id = :id";
+
+    /** Outcome of a vote: the post's count afterwards, whether the caller's vote is on it, whether this call changed it. */
+    public record VoteResult(long count, boolean upvoted, boolean changed) {}
+
+    private final DatabaseClient db;
+    private final TransactionalOperator tx;
+    private final int fetchSize;
+
+    public ReactivePostStore(DatabaseClient db, ConnectionFactory connectionFactory,
+                             @Value("${upvote.reactive.fetch-size:256}") int fetchSize) {
+        this.db = db;
+        this.tx = TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+        this.fetchSize = fetchSize;
+    }
+
+    // -------------------------------------------------------
+    // Reads
+    // -------------------------------------------------------
+
+    /** Every post, upvotes DESC, id DESC; rows are pulled from the cursor only as fast as they are consumed. */
+    public Flux<Post> all() {
+        return db.sql(TOP_SQL)
+                .filter(s -> s.fetchSize(fetchSize))
+                .map(ReactivePostStore::post)
+                .all();
+    }
+
+    /** One keyset page (see PostStore.page); after == null for the first page. */
+    public Flux<Post> page(PostStore.Sort sort, PostPage.Cursor after, int limit) {
+        boolean hot = sort == PostStore.Sort.HOT;
+        DatabaseClient.GenericExecuteSpec spec;
+        if (after == null) {
+            spec = db.sql(hot ? HOT_PAGE_SQL : TOP_PAGE_SQL);
+        } else {
+            spec = db.sql(hot ? HOT_AFTER_SQL : TOP_AFTER_SQL)
+                    .bind("key", after.key())
+                    .bind("id", after.id());
+        }
+        return spec.bind("limit", limit).map(ReactivePostStore::post).all();
+    }
+
+    public Mono<Post> findById(long id) {
+        return db.sql(FIND_SQL).bind("id", id).map(ReactivePostStore::post).one();
+    }
+
+    // -------------------------------------------------------
+    // Writes
+    // -------------------------------------------------------
+
+    public Mono<Post> insert(String title) {
+        // the column keeps microseconds; truncate so the returned post matches what a later read sees
+        Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        return db.sql(INSERT_SQL)
+                .bind("title", title)
+                .bind("createdAt", createdAt)
+                .filter(s -> s.returnGeneratedValues("id"))
+                .map((row, meta) -> row.get("id", Long.class))
+                .one()
+                .map(id -> Post.restore(id, title, 0, createdAt, 0));
+    }
+
+    /** Records the user's vote and bumps the count; empty when the post does not exist. */
+    public Mono<VoteResult> upvote(long postId, long userId) {
+        Mono<VoteResult> vote = db.sql(VOTE_SQL)
+                .bind("postId", postId)
+                .bind("userId", userId)
+                .fetch().rowsUpdated()
+                .flatMap(inserted -> inserted > 0
+                        ? db.sql(INCREMENT_SQL).bind("id", postId).fetch().rowsUpdated().then(count(postId, true, true))
+                        : count(postId, true, false));
+        return tx.transactional(vote)
+                // the same vote racing in from a second request: the unique constraint rejected it
+                .onErrorResume(DataIntegrityViolationException.class, e -> count(postId, true, false));
+    }
+
+    /** Takes the user's vote back (never below zero); empty when the post does not exist. */
+    public Mono<VoteResult> unvote(long postId, long userId) {
+        Mono<VoteResult> unvote = db.sql(UNVOTE_SQL)
+                .bind("postId", postId)
+                .bind("userId", userId)
+                .fetch().rowsUpdated()
+                .flatMap(deleted -> deleted > 0
+                        ? db.sql(DECREMENT_SQL).bind("id", postId).fetch().rowsUpdated().then(count(postId, false, true))
+                        : count(postId, false, false));
+        return tx.transactional(unvote);
+    }
+
+    /**
+     * Sets the title and bumps the version; with a version, only while the post is still at it.
+     * Empty when nothing was updated (no such post, or a newer version).
+     */
+    public Mono<Post> updateTitle(long id, String title, Long version) {
+        DatabaseClient.GenericExecuteSpec update = version == null
+                ? db.sql(UPDATE_TITLE_SQL)
+                : db.sql(UPDATE_TITLE_IF_SQL).bind("version", version);
+        Mono<Post> updated = update.bind("title", title).bind("id", id)
+                .fetch().rowsUpdated()
+                .flatMap(n -> n > 0 ? findById(id) : Mono.empty());
+        return tx.transactional(updated);
+    }
+
+    /** Deletes the post and its votes; false when there was no such post. */
+    public Mono<Boolean> delete(long id) {
+        return delete(id, null);
+    }
+
+    /** As delete(id), but only while the post is at version (when given); false when nothing was deleted. */
+    public Mono<Boolean> delete(long id, Long version) {
+        DatabaseClient.GenericExecuteSpec post = version == null
+                ? db.sql(DELETE_SQL)
+                : db.sql(DELETE_IF_SQL).bind("version", version);
+        // the post row first: its votes only go when it actually went
+        Mono<Boolean> delete = post.bind("id", id).fetch().rowsUpdated()
+                .flatMap(deleted -> deleted > 0
+                        ? db.sql(DELETE_VOTES_SQL).bind("id", id).fetch().rowsUpdated().thenReturn(true)
+                        : Mono.just(false));
+        return tx.transactional(delete);
+    }
+
+    // -------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------
+
+    private Mono<VoteResult> count(long postId, boolean upvoted, boolean changed) {
+        return db.sql(COUNT_SQL)
+                .bind("id", postId)
+                .map((row, meta) -> new VoteResult(row.get("upvotes", Integer.class), upvoted, changed))
+                .one();
+    }
+
+    private static Post post(Readable row) {
+        Double hotScore = row.get("hot_score", Double.class);
+        Long version = row.get("version", Long.class);
+        return Post.restore(row.get("id", Long.class), row.get("title", String.class),
+                row.get("upvotes", Integer.class), row.get("created_at", Instant.class),
+                hotScore == null ? 0 : hotScore, version == null ? 0 : version);
+    }
+}
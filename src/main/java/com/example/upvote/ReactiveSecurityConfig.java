@@ -0,0 +1,103 @@
+package com.example.upvote;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.Customizer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.RedirectServerAuthenticationFailureHandler;
+import org.springframework.security.web.server.authentication.RedirectServerAuthenticationSuccessHandler;
+import org.springframework.security.web.server.authentication.ServerAuthenticationFailureHandler;
+import org.springframework.security.web.server.authentication.logout.RedirectServerLogoutSuccessHandler;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+
+import java.net.URI;
+
+/**
+ * SecurityConfig for the reactive stack: same public paths, form login at /perform_login and
+ * logout as the servlet chain, users from app_user via ReactiveUserStore. No OAuth2 login here.
+ */
+@Configuration
+@EnableWebFluxSecurity
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSecurityConfig {
+
+    // the authentication manager checks passwords (BCrypt) on the bounded-elastic scheduler, off the event loop
+    @Bean
+    public ReactiveUserDetailsService reactiveUserDetailsService(ReactiveUserStore users) {
+        return username -> users.findByUsername(username).cast(UserDetails.class);
+    }
+
+    /** /actuator/prometheus: HTTP Basic, stateless, METRICS role only, as on the servlet stack. */
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public SecurityWebFilterChain metricsWebFilterChain(ServerHttpSecurity http) {
+        return http
+                .securityMatcher(ServerWebExchangeMatchers.pathMatchers("/actuator/prometheus"))
+                .authorizeExchange(exchange -> exchange.anyExchange().hasRole("METRICS"))
+                .httpBasic(Customizer.withDefaults())
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .build();
+    }
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+        RedirectServerLogoutSuccessHandler loggedOut = new RedirectServerLogoutSuccessHandler();
+        loggedOut.setLogoutSuccessUrl(URI.create("/login.html?logout"));
+
+        return http
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .authorizeExchange(exchange -> exchange
+                        .pathMatchers(
+                                "/", "/login", "/login.html", "/perform_login",
+                                "/css/**", "/js/**", "/favicon.ico", "/error",
+                                "/posts/**",
+                                "/auth/**",
+                                "/actuator/health", "/actuator/health/**"
+                        ).permitAll()
+                        .anyExchange().authenticated()
+                )
+                .formLogin(form -> form
+                        .loginPage("/login.html")
+                        .requiresAuthenticationMatcher(ServerWebExchangeMatchers.pathMatchers(HttpMethod.POST, "/perform_login"))
+                        .authenticationSuccessHandler(new RedirectServerAuthenticationSuccessHandler("/index.html"))
+                        .authenticationFailureHandler(loginFailureHandler())
+                )
+                .logout(logout -> logout
+                        .logoutUrl("/logout")
+                        .logoutSuccessHandler(loggedOut)
+                )
+                .headers(headers -> headers.frameOptions(ServerHttpSecurity.HeaderSpec.FrameOptionsSpec::disable))
+                .build();
+    }
+
+    /**
+     * Saturated password hashing answers 429 instead of bouncing back to the login page,
+     * everything else keeps the default /login.html?error redirect.
+     */
+    private ServerAuthenticationFailureHandler loginFailureHandler() {
+        RedirectServerAuthenticationFailureHandler fallback = new RedirectServerAuthenticationFailureHandler("/login.html?error");
+        return (webFilterExchange, exception) -> {
+            if (exception instanceof PasswordHashingRejectedException
+                    || exception.getCause() instanceof PasswordHashingRejectedException) {
+                ServerHttpResponse response = webFilterExchange.getExchange().getResponse();
+                response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+                response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                return response.setComplete();
+            }
+            return fallback.onAuthenticationFailure(webFilterExchange, exception);
+        };
+    }
+}
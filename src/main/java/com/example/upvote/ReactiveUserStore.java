@@ -0,0 +1,68 @@
+package com.example.upvote;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * ReactiveUserStore: app_user over R2DBC for the reactive stack (login and voter ids).
+ * The principal is a Voter, so the vote endpoints get the user id without another lookup.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserStore {
+
+    static final String FIND_SQL = "SELECT id, username, password_hash, role FROM app_user WHERE username = :username";
+    static final String INSERT_SQL = "INSERT INTO app_user (username, password_hash, role) VALUES (:username, :hash, :role)";
+
+    private final DatabaseClient db;
+    private final PasswordEncoder passwordEncoder;
+
+    public ReactiveUserStore(DatabaseClient db, PasswordEncoder passwordEncoder) {
+        this.db = db;
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    /** Authenticated user of the reactive stack; id is the app_user id votes are keyed on. */
+    public static final class Voter extends User {
+        private final long id;
+
+        Voter(long id, String username, String passwordHash, String role) {
+            super(username, passwordHash, AuthorityUtils.createAuthorityList("ROLE_" + role));
+            this.id = id;
+        }
+
+        public long getId() {
+            return id;
+        }
+    }
+
+    public Mono<Voter> findByUsername(String username) {
+        return db.sql(FIND_SQL)
+                .bind("username", username)
+                .map((row, meta) -> new Voter(row.get("id", Long.class), row.get("username", String.class),
+                        row.get("password_hash", String.class), row.get("role", String.class)))
+                .one();
+    }
+
+    /**
+     * Stores a new user with a BCrypt hash of the raw password. Hashing runs off the event loop
+     * (it blocks on the bounded hashing executor). A taken username fails with DataIntegrityViolationException.
+     */
+    public Mono<Long> register(String username, String rawPassword) {
+        return Mono.fromCallable(() -> passwordEncoder.encode(rawPassword))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(hash -> db.sql(INSERT_SQL)
+                        .bind("username", username)
+                        .bind("hash", hash)
+                        .bind("role", "USER")
+                        .filter(s -> s.returnGeneratedValues("id"))
+                        .map((row, meta) -> row.get("id", Long.class))
+                        .one());
+    }
+}
@@ -1,25 +1,36 @@
 package com.example.upvote;
 
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.context.SecurityContextHolderFilter;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
 
+import java.util.Optional;
+
+// servlet stack only; the reactive profile is secured by ReactiveSecurityConfig (PasswordEncoder: PasswordConfig)
 @Configuration
 @EnableWebSecurity
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class SecurityConfig {
 
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
-
     /**
      * Provide a very small stub ClientRegistrationRepository that returns null
      * for any registration id. This avoids InMemoryClientRegistrationRepository's
@@ -36,25 +47,64 @@ public class SecurityConfig {
         };
     }
 
+    /**
+     * RateLimitFilter runs inside the security chain (it needs the principal), so keep Boot from
+     * also registering it as a plain servlet filter.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "upvote.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration(RateLimitFilter filter) {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
+    /**
+     * The Prometheus scrape endpoint: HTTP Basic, stateless, for users with the METRICS role only
+     * (an app_user row whose role is METRICS). Checked before the browser chain below.
+     */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    @Order(1)
+    public SecurityFilterChain metricsFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatcher("/actuator/prometheus")
+                .authorizeHttpRequests(authorize -> authorize.anyRequest().hasRole("METRICS"))
+                .httpBasic(Customizer.withDefaults())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .csrf(csrf -> csrf.disable());
+        return http.build();
+    }
+
+    @Bean
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, Optional<RateLimitFilter> rateLimit) throws Exception {
+        // before the login filters and the controllers, right after the session's security context is available
+        rateLimit.ifPresent(filter -> http.addFilterAfter(filter, SecurityContextHolderFilter.class));
+
         http
                 .csrf().disable()
                 .authorizeHttpRequests(authorize -> authorize
+                        .requestMatchers(HttpMethod.POST, "/posts/import").authenticated()
                         .requestMatchers(
                                 "/", "/login", "/login.html", "/perform_login",
                                 "/css/**", "/js/**", "/favicon.ico", "/error",
                                 "/oauth2/**", "/login/oauth2/**", "/h2-console/**",
                                 "/posts/**",
-                                "/auth/**"
+                                "/auth/**",
+                                "/cluster/**", // HttpClusterTransport checks its shared secret itself
+                                "/actuator/health", "/actuator/health/**"
                         ).permitAll()
                         .anyRequest().authenticated()
                 )
+                // an API client without a session gets 401, not the login page
+                .exceptionHandling(exceptions -> exceptions.defaultAuthenticationEntryPointFor(
+                        new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED),
+                        PathPatternRequestMatcher.withDefaults().matcher(HttpMethod.POST, "/posts/import")))
                 .formLogin(form -> form
                         .loginPage("/login.html")
                         .loginProcessingUrl("/perform_login")
                         .permitAll()
                         .defaultSuccessUrl("/index.html", true)
+                        .failureHandler(loginFailureHandler())
                 )
                 .oauth2Login(oauth -> oauth
                         .loginPage("/login.html")
@@ -72,4 +122,21 @@ public class SecurityConfig {
 
         return http.build();
     }
+
+    /**
+     * Saturated password hashing answers 429 instead of bouncing back to the login page,
+     * everything else keeps the default /login.html?error redirect.
+     */
+    private AuthenticationFailureHandler loginFailureHandler() {
+        SimpleUrlAuthenticationFailureHandler fallback = new SimpleUrlAuthenticationFailureHandler("/login.html?error");
+        return (request, response, exception) -> {
+            if (exception instanceof PasswordHashingRejectedException
+                    || exception.getCause() instanceof PasswordHashingRejectedException) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                response.sendError(HttpStatus.TOO_MANY_REQUESTS.value());
+                return;
+            }
+            fallback.onAuthenticationFailure(request, response, exception);
+        };
+    }
 }
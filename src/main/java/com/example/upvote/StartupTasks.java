@@ -0,0 +1,116 @@
+package com.example.upvote;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * StartupTasks: the work a node does once it is up, none of which it needs to answer requests:
+ * - seeding the initial user (JPA repository, or ReactiveUserStore on the reactive profile)
+ * - rebuilding the Leaderboard, then the PostSearchIndex (which ranks by it) from the store
+ * By default they run on ApplicationReadyEvent, i.e. before the readiness probe reports ACCEPTING_TRAFFIC.
+ * With upvote.startup.defer=true (fast profile) they run on a background thread once it does, so a node added
+ * during a spike takes traffic a full table scan (and a BCrypt hash) earlier. Until they finish, /posts/top and
+ * /posts/search answer from what incremental updates have added so far; both rebuilds tolerate concurrent writes.
+ */
+@Component
+public class StartupTasks {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupTasks.class);
+
+    static final String INITIAL_USERNAME = "Jhansi";
+    private static final String INITIAL_PASSWORD = "Teji";
+
+    private final Leaderboard leaderboard;
+    private final PostSearchIndex search;
+    private final Optional<AppUserRepository> users;
+    private final Optional<ReactiveUserStore> reactiveUsers;
+    private final AppUserService userService;
+    private final PasswordEncoder passwordEncoder;
+    private final boolean defer;
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    public StartupTasks(Leaderboard leaderboard, PostSearchIndex search,
+                        Optional<AppUserRepository> users, Optional<ReactiveUserStore> reactiveUsers,
+                        AppUserService userService, PasswordEncoder passwordEncoder,
+                        @Value("${upvote.startup.defer:false}") boolean defer) {
+        this.leaderboard = leaderboard;
+        this.search = search;
+        this.users = users;
+        this.reactiveUsers = reactiveUsers;
+        this.userService = userService;
+        this.passwordEncoder = passwordEncoder;
+        this.defer = defer;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (!defer) runAll();
+    }
+
+    @EventListener
+    public void onReadiness(AvailabilityChangeEvent<ReadinessState> event) {
+        if (event.getState() != ReadinessState.ACCEPTING_TRAFFIC) return;
+        log.info("Accepting traffic {} ms after JVM start", sinceJvmStart());
+        if (!defer) return;
+        Thread t = new Thread(this::runAll, "startup-tasks");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    // -------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------
+
+    // once, even if readiness flaps later on
+    private void runAll() {
+        if (!started.compareAndSet(false, true)) return;
+        long start = System.nanoTime();
+        run("initial user", this::seedInitialUser);
+        run("leaderboard", leaderboard::rebuild);
+        run("search index", search::rebuild);
+        log.info("Startup tasks done in {} ms{}, {} ms after JVM start", (System.nanoTime() - start) / 1_000_000,
+                defer ? " (deferred)" : "", sinceJvmStart());
+    }
+
+    // a failed task is logged and skipped; the others still run
+    private static void run(String name, Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException ex) {
+            log.warn("Startup task '{}' failed: {}", name, ex.getMessage(), ex);
+        }
+    }
+
+    private void seedInitialUser() {
+        if (users.isPresent()) {
+            AppUserRepository repo = users.get();
+            if (repo.findByUsername(INITIAL_USERNAME).isPresent()) return;
+            repo.save(new AppUser(INITIAL_USERNAME, passwordEncoder.encode(INITIAL_PASSWORD), "USER"));
+            // a login may already have cached the name as unknown
+            userService.evict(INITIAL_USERNAME);
+            log.info("Created initial user: {}", INITIAL_USERNAME);
+        } else if (reactiveUsers.isPresent()) {
+            ReactiveUserStore store = reactiveUsers.get();
+            store.findByUsername(INITIAL_USERNAME)
+                    .map(ReactiveUserStore.Voter::getId)
+                    .switchIfEmpty(store.register(INITIAL_USERNAME, INITIAL_PASSWORD))
+                    .block();
+        }
+        // no repository at all: nothing to seed
+    }
+
+    private static long sinceJvmStart() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+}
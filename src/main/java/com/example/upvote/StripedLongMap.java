@@ -0,0 +1,165 @@
+package com.example.upvote;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Concurrent map from primitive long keys to objects: a fixed number of lock stripes,
+ * each an open-addressing table of long[] keys / Object[] values (no boxed keys, no entry nodes).
+ */
+final class StripedLongMap<V> {
+
+    private static final int STRIPES = 64;
+
+    private final Stripe<V>[] stripes;
+
+    @SuppressWarnings("unchecked")
+    StripedLongMap() {
+        stripes = (Stripe<V>[]) new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe<>();
+    }
+
+    V get(long key) {
+        Stripe<V> s = stripe(key);
+        synchronized (s) {
+            return s.get(key);
+        }
+    }
+
+    /** @return the previous value, or null */
+    V put(long key, V value) {
+        Stripe<V> s = stripe(key);
+        synchronized (s) {
+            return s.put(key, value);
+        }
+    }
+
+    /** @return the removed value, or null */
+    V remove(long key) {
+        Stripe<V> s = stripe(key);
+        synchronized (s) {
+            return s.remove(key);
+        }
+    }
+
+    int size() {
+        int n = 0;
+        for (Stripe<V> s : stripes) {
+            synchronized (s) {
+                n += s.size;
+            }
+        }
+        return n;
+    }
+
+    /** Weakly consistent: each stripe is copied under its lock, the action runs outside of it. */
+    void forEachValue(Consumer<V> action) {
+        for (Stripe<V> s : stripes) {
+            List<V> copy;
+            synchronized (s) {
+                copy = s.values();
+            }
+            copy.forEach(action);
+        }
+    }
+
+    private Stripe<V> stripe(long key) {
+        return stripes[mix(key) & (STRIPES - 1)];
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // -------------------------------------------------------
+    // One stripe: linear probing with backward-shift deletion (no tombstones)
+    // -------------------------------------------------------
+    private static final class Stripe<V> {
+        long[] keys = new long[16];
+        Object[] values = new Object[16];
+        int size;
+
+        @SuppressWarnings("unchecked")
+        V get(long key) {
+            int mask = keys.length - 1;
+            // stripe bits come from the low end of the hash, so probe with the high end
+            for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+                if (values[i] == null) return null;
+                if (keys[i] == key) return (V) values[i];
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V put(long key, V value) {
+            if (value == null) throw new IllegalArgumentException("null value");
+            if ((size + 1) * 4 >= keys.length * 3) grow();
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+                if (values[i] == null) {
+                    keys[i] = key;
+                    values[i] = value;
+                    size++;
+                    return null;
+                }
+                if (keys[i] == key) {
+                    V old = (V) values[i];
+                    values[i] = value;
+                    return old;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V remove(long key) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (true) {
+                if (values[i] == null) return null;
+                if (keys[i] == key) break;
+                i = (i + 1) & mask;
+            }
+            V old = (V) values[i];
+            // shift following entries of the same probe run back into the hole
+            int hole = i;
+            for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+                int home = slot(keys[j], mask);
+                boolean movable = hole <= j ? (home <= hole || home > j) : (home <= hole && home > j);
+                if (movable) {
+                    keys[hole] = keys[j];
+                    values[hole] = values[j];
+                    hole = j;
+                }
+            }
+            values[hole] = null;
+            size--;
+            return old;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<V> values() {
+            List<V> out = new ArrayList<>(size);
+            for (Object v : values) {
+                if (v != null) out.add((V) v);
+            }
+            return out;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void grow() {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new long[oldKeys.length << 1];
+            values = new Object[oldValues.length << 1];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) put(oldKeys[i], (V) oldValues[i]);
+            }
+        }
+
+        private int slot(long key, int mask) {
+            return (mix(key) >>> 6) & mask;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.upvote;
+
+import jakarta.persistence.*;
+
+/**
+ * One row per (post, user) upvote. The unique constraint is the durable guard against
+ * double voting; VoteLedger answers "has this user voted?" from memory in front of it.
+ */
+@Entity
+@Table(name = "post_vote",
+        uniqueConstraints = @UniqueConstraint(name = "uk_post_vote_post_user", columnNames = {"post_id", "user_id"}))
+public class Vote {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "post_id", nullable = false)
+    private Long postId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    public Vote() {}
+
+    public Vote(Long postId, Long userId) {
+        this.postId = postId;
+        this.userId = userId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getPostId() {
+        return postId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+}
@@ -0,0 +1,478 @@
+package com.example.upvote;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * VoteCounter:
+ * - keeps the live upvote count of every touched post in memory (striped LongAdder cells)
+ * - the vote endpoints only apply +1/-1 deltas here, they never hit the database
+ * - a background flusher hands the aggregated deltas to PostStore.addUpvotes every
+ *   upvote.counter.flush-interval-ms (one JDBC batch of "UPDATE post SET upvotes = upvotes + ?" for JPA)
+ * - upvote.counter.write-through=true (several nodes on one database): every vote is instead one atomic
+ *   PostStore.incrementUpvotes / decrementUpvotesFloorZero, and the count it returns becomes the live value
+ * - upvote.cluster.enabled=true (several nodes, no shared hot row): each count is a PN-counter (PnCounter)
+ *   with one slot per node. Votes only advance this node's slot. The flush persists this node's slots
+ *   (PostStore.saveSlots) instead of deltas, and CounterReplicator ships them as persisted to the other
+ *   nodes and merges theirs back in, so every node starts from the same base and converges on the same count.
+ *   A node keeps its slot across restarts (upvote.cluster.node-id) and resumes it from the database.
+ */
+@Component
+public class VoteCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(VoteCounter.class);
+
+    private final PostStore store;
+    private final boolean writeThrough;
+    // replicated: this node's PN-counter slot, else null. The node id, kept across restarts: a restarted
+    // node picks up its persisted p/n and goes on from there, so the slots of a post stay one per node.
+    // That is safe because the slot is only shipped as persisted (unsent, snapshot): no peer ever holds
+    // more of it than the database, whatever the node lost in a crash
+    private final String slot;
+
+    private final ConcurrentMap<Long, Counter> counters = new ConcurrentHashMap<>();
+    // first loads in flight: concurrent first touches of a post wait on one store lookup
+    private final ConcurrentMap<Long, CompletableFuture<Counter>> loading = new ConcurrentHashMap<>();
+    // told about every batch of deltas that reached the store (VoteJournal)
+    private final List<Consumer<Map<Long, Long>>> flushListeners = new CopyOnWriteArrayList<>();
+    // the scheduler, shutdown and VoteJournal.stop may all flush; a Lock, not synchronized, because the
+    // holder sits in a JDBC batch and a virtual thread must not pin its carrier for that long
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public VoteCounter(PostStore store) {
+        this(store, false, false, null);
+    }
+
+    @Autowired
+    public VoteCounter(PostStore store,
+                       @Value("${upvote.counter.write-through:false}") boolean writeThrough,
+                       @Value("${upvote.cluster.enabled:false}") boolean replicated,
+                       @Value("${upvote.cluster.node-id:}") String nodeId) {
+        this.store = store;
+        if (writeThrough && replicated) {
+            log.warn("upvote.counter.write-through ignored: upvote.cluster.enabled is on");
+        }
+        this.writeThrough = writeThrough && !replicated;
+        this.slot = replicated ? slotId(nodeId) : null;
+        if (replicated && (nodeId == null || nodeId.isBlank())) {
+            log.warn("upvote.cluster.node-id not set: counter slot {} is new on every start", slot);
+        }
+    }
+
+    public boolean isWriteThrough() {
+        return writeThrough;
+    }
+
+    public boolean isReplicated() {
+        return slot != null;
+    }
+
+    /** This node's PN-counter slot id (upvote.cluster.node-id, random if unset); null unless replicated. */
+    public String slot() {
+        return slot;
+    }
+
+    // -------------------------------------------------------
+    // Request path (memory only after the first touch of a post)
+    // -------------------------------------------------------
+
+    /** +1 on the post; empty when the post does not exist. */
+    public OptionalLong increment(long postId) {
+        Counter c = counter(postId);
+        if (c == null) return OptionalLong.empty();
+        if (writeThrough) return writeThrough(postId, c, true);
+        if (c.crdt != null) {
+            c.crdt.add(slot, 1);
+        } else {
+            c.pending.increment();
+        }
+        c.value.increment();
+        return OptionalLong.of(c.value.sum());
+    }
+
+    /** -1 on the post, never going below zero; empty when the post does not exist. */
+    public OptionalLong decrement(long postId) {
+        Counter c = counter(postId);
+        if (c == null) return OptionalLong.empty();
+        if (writeThrough) return writeThrough(postId, c, false);
+        // increments stay lock-free; only decrements are serialized so the floor check cannot race another decrement
+        synchronized (c) {
+            if (c.value.sum() > 0) {
+                if (c.crdt != null) {
+                    c.crdt.add(slot, -1);
+                } else {
+                    c.pending.decrement();
+                }
+                c.value.decrement();
+            }
+            return OptionalLong.of(c.value.sum());
+        }
+    }
+
+    /** Current in-memory count; empty when the post does not exist. */
+    public OptionalLong current(long postId) {
+        Counter c = counter(postId);
+        return c == null ? OptionalLong.empty() : OptionalLong.of(c.value.sum());
+    }
+
+    /** Live count when the post already has a counter in memory; never touches the repository. */
+    public OptionalLong peek(long postId) {
+        Counter c = counters.get(postId);
+        return c == null ? OptionalLong.empty() : OptionalLong.of(c.value.sum());
+    }
+
+    /**
+     * Replace the persisted count on a post loaded from the repository with the live one
+     * (the row lags behind by at most one flush interval). Posts never voted on are left untouched.
+     */
+    public Post overlay(Post post) {
+        if (post == null || post.getId() == null) return post;
+        Counter c = counters.get(post.getId());
+        if (c != null) post.setUpvotes((int) c.value.sum());
+        return post;
+    }
+
+    /**
+     * Load the counters of many posts with one PostStore lookup (batch vote ingestion);
+     * posts already in memory are skipped, unknown ids stay unknown.
+     */
+    public void preload(Collection<Long> postIds) {
+        if (!store.isAvailable()) return;
+        List<Long> missing = new ArrayList<>();
+        for (Long id : postIds) {
+            if (!counters.containsKey(id)) missing.add(id);
+        }
+        if (missing.isEmpty()) return;
+        if (slot != null) {
+            load(missing);
+            return;
+        }
+        for (PostAge p : store.ages(missing)) {
+            counters.computeIfAbsent(p.getId(), k -> new Counter(p.getUpvotes()));
+        }
+    }
+
+    /**
+     * Drop the counter of a deleted post (its pending delta has nowhere to go). A first load still
+     * in flight finds its entry gone and installs nothing.
+     */
+    public void forget(long postId) {
+        loading.remove(postId);
+        counters.remove(postId);
+    }
+
+    /**
+     * Re-apply votes recovered from the journal that never reached the store:
+     * added to the live count and queued for the next flush. Loads nothing: preload the posts first.
+     * False when the post is not in memory, i.e. gone.
+     */
+    public boolean restore(long postId, long unflushed) {
+        Counter c = counters.get(postId);
+        if (c == null) return false;
+        c.value.add(unflushed);
+        c.pending.add(unflushed);
+        return true;
+    }
+
+    /**
+     * Take back votes this node counted but the VoteLedger table turned down (another node had counted them):
+     * -votes on the live count. Returns the new count; empty when the post does not exist.
+     */
+    public OptionalLong revert(long postId, int votes) {
+        OptionalLong count = current(postId);
+        for (int i = 0; i < Math.abs(votes) && count.isPresent(); i++) {
+            count = votes > 0 ? decrement(postId) : increment(postId);
+        }
+        return count;
+    }
+
+    public void onFlushed(Consumer<Map<Long, Long>> listener) {
+        flushListeners.add(listener);
+    }
+
+    // -------------------------------------------------------
+    // Replication (CounterReplicator)
+    // -------------------------------------------------------
+
+    /**
+     * This node's slot, as last persisted, of every post whose slot was flushed since the last call. Votes
+     * reach the other nodes one flush after they are counted here, never before the database has them.
+     */
+    public CounterDeltas unsent() {
+        CounterDeltas.Builder out = new CounterDeltas.Builder(slot);
+        counters.forEach((id, c) -> {
+            if (c.crdt == null || !c.unsent) return;
+            c.unsent = false; // before reading the slot: a flush racing in is either in this batch or flags the next
+            out.add(id, c.saved(slot));
+        });
+        return out.build();
+    }
+
+    /**
+     * Every known slot of every post in memory, at most postsPerBatch posts per batch (anti-entropy:
+     * repairs lost batches and brings restarted or new nodes up to date).
+     */
+    public void snapshot(int postsPerBatch, Consumer<CounterDeltas> sink) {
+        CounterDeltas.Builder out = new CounterDeltas.Builder(slot);
+        int posts = 0;
+        for (Map.Entry<Long, Counter> e : counters.entrySet()) {
+            if (e.getValue().crdt == null) continue;
+            Counter c = e.getValue();
+            for (PnCounter.Slot s : c.crdt.slots()) out.add(e.getKey(), s.node().equals(slot) ? c.saved(slot) : s);
+            if (++posts == postsPerBatch) {
+                sink.accept(out.build());
+                out = new CounterDeltas.Builder(slot);
+                posts = 0;
+            }
+        }
+        if (out.size() > 0) sink.accept(out.build());
+    }
+
+    /**
+     * Merge slots from another node. Posts not in memory yet are loaded first (one PostStore lookup),
+     * unknown ones are skipped. Returns the new live count of every post whose count moved.
+     */
+    public Map<Long, Long> merge(CounterDeltas deltas) {
+        if (slot == null || deltas == null || deltas.isEmpty()) return Map.of();
+        Set<Long> ids = new HashSet<>();
+        deltas.slots().values().forEach(t -> {
+            for (int i = 0; i + 2 < t.length; i += 3) ids.add(t[i]);
+        });
+        preload(ids);
+
+        Map<Long, Long> moved = new HashMap<>();
+        deltas.slots().forEach((node, t) -> {
+            for (int i = 0; i + 2 < t.length; i += 3) {
+                Counter c = counters.get(t[i]);
+                if (c == null || c.crdt == null) continue; // deleted, or never existed
+                long by = c.crdt.merge(node, t[i + 1], t[i + 2]);
+                if (by != 0) {
+                    c.value.add(by);
+                    moved.put(t[i], c.value.sum());
+                }
+            }
+        });
+        return moved;
+    }
+
+    // -------------------------------------------------------
+    // Write-behind flush
+    // -------------------------------------------------------
+    @Scheduled(fixedDelayString = "${upvote.counter.flush-interval-ms:500}")
+    public void flush() {
+        if (!store.isAvailable()) return;
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushPending() {
+        if (slot != null) {
+            flushSlots();
+            return;
+        }
+        Map<Long, Long> batch = new HashMap<>();
+        for (Map.Entry<Long, Counter> e : counters.entrySet()) {
+            long delta = e.getValue().pending.sumThenReset();
+            if (delta != 0) batch.put(e.getKey(), delta);
+        }
+        if (batch.isEmpty()) return;
+
+        try {
+            store.addUpvotes(batch);
+            log.debug("Flushed upvote deltas for {} posts", batch.size());
+        } catch (RuntimeException ex) {
+            // put the deltas back so the next pass retries them
+            batch.forEach((id, delta) -> {
+                Counter c = counters.get(id);
+                if (c != null) c.pending.add(delta);
+            });
+            log.warn("Upvote flush failed for {} posts, will retry: {}", batch.size(), ex.getMessage());
+            return;
+        }
+        flushListeners.forEach(l -> l.accept(batch));
+    }
+
+    // replicated: persist this node's slot of every post it voted on since the last flush. The slot is
+    // written absolute, so a failed pass needs nothing put back: the next one diffs against the last save
+    private void flushSlots() {
+        List<PostStore.SlotWrite> writes = new ArrayList<>();
+        List<Counter> written = new ArrayList<>();
+        for (Map.Entry<Long, Counter> e : counters.entrySet()) {
+            Counter c = e.getValue();
+            PnCounter.Slot own = c.crdt.slot(slot);
+            if (own.p() == c.savedP && own.n() == c.savedN) continue;
+            long delta = (own.p() - own.n()) - (c.savedP - c.savedN);
+            writes.add(new PostStore.SlotWrite(e.getKey(), own.p(), own.n(), delta, !c.slotSaved));
+            written.add(c);
+        }
+        if (writes.isEmpty()) return;
+
+        try {
+            store.saveSlots(slot, writes);
+            log.debug("Flushed counter slots for {} posts", writes.size());
+        } catch (RuntimeException ex) {
+            log.warn("Counter slot flush failed for {} posts, will retry: {}", writes.size(), ex.getMessage());
+            return;
+        }
+        Map<Long, Long> batch = new HashMap<>();
+        for (int i = 0; i < writes.size(); i++) {
+            PostStore.SlotWrite w = writes.get(i);
+            Counter c = written.get(i);
+            c.savedN = w.n();
+            c.savedP = w.p();
+            c.slotSaved = true;
+            c.unsent = true; // after the saved slot: gossip reads it once it sees the flag
+            if (w.delta() != 0) batch.put(w.postId(), w.delta());
+        }
+        if (!batch.isEmpty()) flushListeners.forEach(l -> l.accept(batch));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // -------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------
+
+    // one statement in the store; holding the counter's lock keeps this node applying the returned
+    // counts in commit order (the row lock serializes the updates anyway)
+    private OptionalLong writeThrough(long postId, Counter c, boolean up) {
+        c.writeLock.lock();
+        try {
+            OptionalLong count = up ? store.incrementUpvotes(postId) : store.decrementUpvotesFloorZero(postId);
+            if (count.isEmpty()) {
+                counters.remove(postId, c); // deleted elsewhere
+                return count;
+            }
+            c.value.add(count.getAsLong() - c.value.sum());
+            return count;
+        } finally {
+            c.writeLock.unlock();
+        }
+    }
+
+    // first touch loads the persisted count once; null when the post is unknown. The lookup runs outside
+    // both maps: whoever registers the future queries the store, everyone else touching the post meanwhile
+    // waits on it. Installing goes through the loading entry, so a forget() during the lookup wins
+    private Counter counter(long postId) {
+        Counter c = counters.get(postId);
+        if (c != null || !store.isAvailable()) return c;
+        CompletableFuture<Counter> load = new CompletableFuture<>();
+        CompletableFuture<Counter> inFlight = loading.putIfAbsent(postId, load);
+        if (inFlight != null) return await(inFlight);
+        try {
+            Counter loaded = counters.get(postId); // preload or merge may have got there first
+            if (loaded == null) loaded = fetch(postId);
+            Counter fetched = loaded;
+            Counter[] installed = {null};
+            loading.computeIfPresent(postId, (k, f) -> {
+                if (f != load) return f; // forgotten meanwhile and another first touch registered its own load
+                if (fetched != null) installed[0] = counters.computeIfAbsent(postId, x -> fetched);
+                return null;
+            });
+            load.complete(installed[0]);
+            return installed[0];
+        } catch (RuntimeException ex) {
+            loading.remove(postId, load);
+            load.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    private Counter fetch(long postId) {
+        if (slot != null) {
+            for (PostStore.CounterState state : store.counterStates(List.of(postId))) {
+                if (state.id() == postId) return new Counter(state, slot);
+            }
+            return null;
+        }
+        return store.findById(postId).map(p -> new Counter(p.getUpvotes())).orElse(null);
+    }
+
+    // the loader's own exception, not a CompletionException around it
+    private static Counter await(CompletableFuture<Counter> load) {
+        try {
+            return load.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            throw ex;
+        }
+    }
+
+    // replicated: the count and every persisted slot, read together
+    private void load(Collection<Long> postIds) {
+        for (PostStore.CounterState state : store.counterStates(postIds)) {
+            counters.computeIfAbsent(state.id(), k -> new Counter(state, slot));
+        }
+    }
+
+    static String slotId(String nodeId) {
+        String node = nodeId == null || nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        return node.length() > 64 ? node.substring(0, 64) : node; // the slot column holds 64
+    }
+
+    private static final class Counter {
+        final LongAdder value = new LongAdder();    // live count served to readers
+        final LongAdder pending = new LongAdder();  // not yet written to the post table
+        final ReentrantLock writeLock = new ReentrantLock(); // write-through votes only
+
+        // replicated only: value = base + crdt.value()
+        final PnCounter crdt;
+        volatile boolean unsent;   // own slot persisted since the last CounterDeltas
+        volatile long savedP, savedN; // own slot as last persisted (written under flushLock)
+        boolean slotSaved;         // own slot row exists (flushLock)
+
+        Counter(long base) {
+            value.add(base);
+            crdt = null;
+        }
+
+        Counter(PostStore.CounterState state, String ownSlot) {
+            crdt = new PnCounter();
+            for (PnCounter.Slot s : state.slots()) {
+                crdt.merge(s.node(), s.p(), s.n());
+                if (s.node().equals(ownSlot)) {
+                    savedP = s.p();
+                    savedN = s.n();
+                    slotSaved = true;
+                }
+            }
+            value.add(state.base() + crdt.value());
+        }
+
+        // own slot as the database has it, the only way it leaves this node. Read while a flush writes it,
+        // the pair may mix two saves; both are persisted and merging is per component, so it is never ahead
+        PnCounter.Slot saved(String ownSlot) {
+            return new PnCounter.Slot(ownSlot, savedP, savedN);
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package com.example.upvote;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * VoteJournal (upvote.journal.enabled=true):
+ * - every counted vote is appended to a memory-mapped segment as a fixed 32-byte record
+ *   (post id, user id, timestamp, delta, crc) before VoteCounter applies it
+ * - a syncer thread forces new records to disk every upvote.journal.sync-interval-ms (group commit);
+ *   with upvote.journal.await-sync the vote is only acknowledged once its record is durable, or after
+ *   upvote.journal.sync-timeout-ms at the latest. While forcing fails (disk full, I/O error) the syncer logs,
+ *   keeps retrying and votes are acknowledged without waiting: counted in memory, not yet durable
+ * - every successful VoteCounter flush is journaled as a marker record (user id -1)
+ * - a periodic snapshot folds closed segments into the per-post delta not yet flushed to the store,
+ *   and deletes them. Folding drops the user ids, so it first has VoteLedger write its pending rows,
+ *   and skips the pass (segments kept) while any of them fails
+ * - on startup: latest snapshot + replay of the segments after it. The resulting unflushed deltas are put
+ *   back into VoteCounter (one PostStore lookup for all of them), and the segments' votes are replayed into
+ *   VoteLedger, which skips the ones its table already has. Posts without unflushed votes are already
+ *   correct in the store, so nothing scans the post table.
+ * A crash between a store flush and its marker replays that flush once more (at-least-once).
+ */
+@Component
+public class VoteJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(VoteJournal.class);
+
+    static final int RECORD_BYTES = 32;
+    static final long FLUSH_MARKER = -1L;
+    private static final int SNAPSHOT_MAGIC = 0x564A534E; // "VJSN"
+
+    private final boolean enabled;
+    private final Path dir;
+    private final int segmentBytes;
+    private final boolean awaitSync;
+    private final long syncIntervalMs;
+    private final long syncTimeoutNanos;
+    private final VoteCounter counter;
+    private final VoteLedger ledger;
+
+    // current segment, guarded by this
+    private long segmentSeq;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int offset;
+    private int forcedOffset;
+    private long appended; // bytes appended since startup (all segments)
+
+    // request threads park here until their record is forced; a Lock rather than a monitor,
+    // so a waiting virtual thread releases its carrier (Object.wait pins it on Java 21)
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition syncedCond = syncLock.newCondition();
+    private volatile long synced;
+    private volatile boolean running;
+    // the last force failed; waiters stop waiting until one succeeds again
+    private volatile boolean failing;
+    private Thread syncer;
+
+    public VoteJournal(VoteCounter counter, VoteLedger ledger,
+                       @Value("${upvote.journal.enabled:false}") boolean enabled,
+                       @Value("${upvote.journal.dir:./data/journal}") String dir,
+                       @Value("${upvote.journal.segment-bytes:67108864}") int segmentBytes,
+                       @Value("${upvote.journal.await-sync:true}") boolean awaitSync,
+                       @Value("${upvote.journal.sync-interval-ms:2}") long syncIntervalMs,
+                       @Value("${upvote.journal.sync-timeout-ms:1000}") long syncTimeoutMs) {
+        this.counter = counter;
+        this.ledger = ledger;
+        // write-through votes are in the store before they are acknowledged: nothing to recover
+        if (enabled && counter.isWriteThrough()) {
+            log.warn("upvote.journal.enabled ignored: upvote.counter.write-through is on");
+        }
+        // replicated counts resume from the node's persisted slot; the journal folds post deltas, not slots
+        if (enabled && counter.isReplicated()) {
+            log.warn("upvote.journal.enabled ignored: upvote.cluster.enabled is on");
+        }
+        this.enabled = enabled && !counter.isWriteThrough() && !counter.isReplicated();
+        this.dir = Paths.get(dir);
+        this.segmentBytes = segmentBytes - segmentBytes % RECORD_BYTES;
+        this.awaitSync = awaitSync;
+        this.syncIntervalMs = syncIntervalMs;
+        this.syncTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, syncTimeoutMs));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // -------------------------------------------------------
+    // Lifecycle: recover, then open a fresh segment
+    // -------------------------------------------------------
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) return;
+        Files.createDirectories(dir);
+
+        long start = System.nanoTime();
+        long snapshotSeq = latestSnapshotSeq();
+        Map<Long, Long> pending = readSnapshot(snapshotSeq);
+        List<long[]> votes = new ArrayList<>(); // {post id, user id, +1/-1} after the snapshot, in order
+        long lastSeq = snapshotSeq - 1;
+        for (long seq : segmentSeqs()) {
+            if (seq < snapshotSeq) continue;
+            fold(segmentPath(seq), pending, votes);
+            lastSeq = Math.max(lastSeq, seq);
+        }
+
+        // one lookup for every post the journal names; the ones it does not find are gone
+        Set<Long> postIds = new HashSet<>(pending.keySet());
+        votes.forEach(v -> postIds.add(v[0]));
+        counter.preload(postIds);
+
+        int restored = 0;
+        Map<Long, Long> orphaned = new HashMap<>();
+        for (Map.Entry<Long, Long> e : pending.entrySet()) {
+            if (counter.restore(e.getKey(), e.getValue())) restored++;
+            else orphaned.put(e.getKey(), e.getValue()); // post is gone
+        }
+        // their post_vote rows may be missing too; record/retract are no-ops for the rows the table has
+        int replayed = 0;
+        for (long[] v : votes) {
+            if (counter.peek(v[0]).isEmpty()) continue;
+            if (v[2] > 0 ? ledger.record(v[0], v[1]) : ledger.retract(v[0], v[1])) replayed++;
+        }
+
+        synchronized (this) {
+            openSegment(Math.max(lastSeq + 1, 1));
+        }
+        // settle deltas of deleted posts so the next snapshot drops them
+        if (!orphaned.isEmpty()) flushed(orphaned);
+
+        counter.onFlushed(this::flushed);
+        running = true;
+        syncer = new Thread(this::syncLoop, "vote-journal-sync");
+        syncer.setDaemon(true);
+        syncer.start();
+        log.info("Vote journal recovered {} unflushed post counters and {} unwritten votes in {} ms", restored,
+                replayed, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!enabled || !running) return;
+        // flush while the journal is still open, so the markers of this last flush are recorded
+        counter.flush();
+        running = false;
+        syncer.interrupt();
+        synchronized (this) {
+            buffer.force();
+            synced = appended;
+        }
+        signalSynced();
+    }
+
+    // -------------------------------------------------------
+    // Append (request path)
+    // -------------------------------------------------------
+
+    /** Journal one counted vote (+1 / -1); returns once durable when await-sync is on. */
+    public void append(long postId, long userId, int delta) {
+        sync(record(postId, userId, delta));
+    }
+
+    /** Journal one counted vote without waiting; pass the returned position to {@link #sync}. */
+    public long record(long postId, long userId, int delta) {
+        if (!enabled) return 0;
+        synchronized (this) {
+            write(postId, userId, delta);
+            return appended;
+        }
+    }
+
+    /** Waits (when await-sync is on) until everything up to position is durable: one wait for a whole batch. */
+    public void sync(long position) {
+        if (enabled && awaitSync) awaitSynced(position);
+    }
+
+    // VoteCounter flushed these deltas to the store
+    void flushed(Map<Long, Long> deltas) {
+        if (!enabled) return;
+        synchronized (this) {
+            deltas.forEach((postId, delta) -> write(postId, FLUSH_MARKER, Math.toIntExact(delta)));
+        }
+    }
+
+    // caller holds the lock
+    private void write(long postId, long userId, int delta) {
+        if (offset + RECORD_BYTES > segmentBytes) roll();
+        buffer.putLong(offset, postId);
+        buffer.putLong(offset + 8, userId);
+        buffer.putLong(offset + 16, System.currentTimeMillis());
+        buffer.putInt(offset + 24, delta);
+        buffer.putInt(offset + 28, checksum(buffer, offset));
+        offset += RECORD_BYTES;
+        appended += RECORD_BYTES;
+        if (!running) buffer.force(); // no syncer (startup / shutdown): write through
+    }
+
+    // bounded: a syncer stuck in force() or failing must not hold votes forever
+    private void awaitSynced(long end) {
+        syncLock.lock();
+        try {
+            long nanos = syncTimeoutNanos;
+            while (synced < end && running && !failing) {
+                if (nanos <= 0) {
+                    log.warn("Vote journal sync took longer than {} ms; vote acknowledged before it is durable",
+                            TimeUnit.NANOSECONDS.toMillis(syncTimeoutNanos));
+                    return;
+                }
+                nanos = syncedCond.awaitNanos(nanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void signalSynced() {
+        syncLock.lock();
+        try {
+            syncedCond.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // -------------------------------------------------------
+    // Group commit
+    // -------------------------------------------------------
+    private void syncLoop() {
+        while (running) {
+            MappedByteBuffer buf;
+            int from;
+            int to;
+            long target;
+            synchronized (this) {
+                buf = buffer;
+                from = forcedOffset;
+                to = offset;
+                target = appended;
+                forcedOffset = to;
+            }
+            try {
+                if (to > from) force(buf, from, to - from);
+                if (failing) {
+                    failing = false;
+                    log.info("Vote journal sync recovered");
+                }
+                if (target > synced) {
+                    synced = target;
+                    signalSynced();
+                }
+            } catch (RuntimeException | InternalError e) { // a fault on a mapped page surfaces as InternalError
+                synchronized (this) {
+                    if (buffer == buf && forcedOffset == to) forcedOffset = from; // force the range again next pass
+                }
+                if (!failing) {
+                    failing = true;
+                    log.error("Vote journal sync failed, votes are acknowledged unsynced until it recovers: {}",
+                            e.toString(), e);
+                    signalSynced(); // waiters stop waiting
+                }
+            }
+            try {
+                Thread.sleep(syncIntervalMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // the one place the syncer touches the disk
+    void force(MappedByteBuffer buf, int from, int length) {
+        buf.force(from, length);
+    }
+
+    // -------------------------------------------------------
+    // Snapshot / compaction
+    // -------------------------------------------------------
+    @Scheduled(fixedDelayString = "${upvote.journal.snapshot-interval-ms:60000}")
+    public void snapshot() throws IOException {
+        if (!enabled || !running) return;
+
+        long upTo;
+        synchronized (this) {
+            roll(); // everything before the new segment is now immutable
+            upTo = segmentSeq;
+        }
+        // every vote in those segments was marked in the ledger before it was journaled
+        if (!ledger.flushNow()) {
+            log.debug("Vote journal snapshot skipped: vote ledger rows still pending");
+            return;
+        }
+
+        long previous = latestSnapshotSeq();
+        Map<Long, Long> pending = readSnapshot(previous);
+        List<Long> folded = new ArrayList<>();
+        for (long seq : segmentSeqs()) {
+            if (seq >= upTo) continue;
+            if (seq >= previous) fold(segmentPath(seq), pending, null);
+            folded.add(seq);
+        }
+        writeSnapshot(upTo, pending);
+
+        for (long seq : folded) Files.deleteIfExists(segmentPath(seq));
+        if (previous > 0) Files.deleteIfExists(snapshotPath(previous));
+        log.debug("Vote journal snapshot {}: {} posts with unflushed votes, {} segments folded",
+                upTo, pending.size(), folded.size());
+    }
+
+    // -------------------------------------------------------
+    // Files
+    // -------------------------------------------------------
+
+    // caller holds the lock
+    private void roll() {
+        buffer.force();
+        closeQuietly(channel);
+        openSegment(segmentSeq + 1);
+    }
+
+    // caller holds the lock
+    private void openSegment(long seq) {
+        try {
+            channel = FileChannel.open(segmentPath(seq),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open vote journal segment " + seq, e);
+        }
+        segmentSeq = seq;
+        offset = 0;
+        forcedOffset = 0;
+    }
+
+    // add the segment's vote deltas and subtract its flush markers, collecting the votes themselves when asked;
+    // stops at the first torn / empty record
+    private static void fold(Path segment, Map<Long, Long> pending, List<long[]> votes) throws IOException {
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            for (int at = 0; at + RECORD_BYTES <= buf.limit(); at += RECORD_BYTES) {
+                if (buf.getInt(at + 28) != checksum(buf, at)) break;
+                long postId = buf.getLong(at);
+                long userId = buf.getLong(at + 8);
+                int delta = buf.getInt(at + 24);
+                pending.merge(postId, userId == FLUSH_MARKER ? -delta : (long) delta,
+                        (a, b) -> a + b == 0 ? null : a + b);
+                if (votes != null && userId != FLUSH_MARKER) votes.add(new long[] {postId, userId, delta});
+            }
+        }
+    }
+
+    private Map<Long, Long> readSnapshot(long seq) throws IOException {
+        Map<Long, Long> pending = new HashMap<>();
+        if (seq <= 0) return pending;
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(snapshotPath(seq)));
+        if (buf.getInt() != SNAPSHOT_MAGIC) throw new IOException("Corrupt vote snapshot " + seq);
+        int n = buf.getInt();
+        for (int i = 0; i < n; i++) pending.put(buf.getLong(), buf.getLong());
+        return pending;
+    }
+
+    // written to a temp file, forced, then atomically renamed into place
+    private void writeSnapshot(long seq, Map<Long, Long> pending) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(8 + pending.size() * 16);
+        buf.putInt(SNAPSHOT_MAGIC).putInt(pending.size());
+        pending.forEach((postId, delta) -> buf.putLong(postId).putLong(delta));
+        buf.flip();
+
+        Path tmp = dir.resolve("snapshot.tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(true);
+        }
+        Files.move(tmp, snapshotPath(seq), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private long latestSnapshotSeq() throws IOException {
+        return seqs("snapshot-", ".bin").stream().mapToLong(Long::longValue).max().orElse(0);
+    }
+
+    private List<Long> segmentSeqs() throws IOException {
+        List<Long> seqs = seqs("journal-", ".log");
+        seqs.sort(null);
+        return seqs;
+    }
+
+    private List<Long> seqs(String prefix, String suffix) throws IOException {
+        List<Long> out = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(prefix) && n.endsWith(suffix))
+                    .forEach(n -> out.add(Long.parseLong(n.substring(prefix.length(), n.length() - suffix.length()))));
+        }
+        return out;
+    }
+
+    private Path segmentPath(long seq) {
+        return dir.resolve(String.format("journal-%016d.log", seq));
+    }
+
+    private Path snapshotPath(long seq) {
+        return dir.resolve(String.format("snapshot-%016d.bin", seq));
+    }
+
+    private static int checksum(ByteBuffer buf, int at) {
+        CRC32 crc = new CRC32();
+        crc.update(buf.slice(at, 28));
+        return (int) crc.getValue();
+    }
+
+    private static void closeQuietly(FileChannel ch) {
+        try {
+            if (ch != null) ch.close();
+        } catch (IOException ignored) {
+            // the mapping stays valid; nothing else to release
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.example.upvote;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * VoteLedger:
+ * - answers "has this user voted on this post?" from a per-post primitive set of user ids
+ * - record/retract are idempotent and report whether the state actually changed
+ * - the post_vote rows are written behind, netted per (post, user), like VoteCounter's deltas
+ * - the sets are per node: with several nodes a user can vote on a post through two of them. The table
+ *   settles it, one row per (post, user): an INSERT the unique key turns down, or a DELETE that finds no row,
+ *   is a vote another node counted first, reported to onRejected so this node takes its count back
+ * - the sets are a cache of the table, bounded by upvote.ledger.max-cached-voters user ids in total. A set
+ *   takes 8-32 bytes per id (LongHashSet keeps 1 to 4 long slots per id) plus ~150 bytes per post, so the
+ *   default 1,000,000 ids is 8-32 MB. After each flush the least recently used sets are dropped
+ *   until the total fits again; a dropped post is read back from the table on its next touch. A set with
+ *   rows not yet written is kept, the table would not have them. The bound is soft: between two flushes the
+ *   posts touched meanwhile are loaded whatever their size
+ */
+@Component
+public class VoteLedger {
+
+    private static final Logger log = LoggerFactory.getLogger(VoteLedger.class);
+
+    static final String INSERT_SQL = "INSERT INTO post_vote (post_id, user_id) VALUES (?, ?)";
+    static final String DELETE_SQL = "DELETE FROM post_vote WHERE post_id = ? AND user_id = ?";
+    static final String DELETE_POST_SQL = "DELETE FROM post_vote WHERE post_id = ?";
+
+    private final Optional<VoteRepository> votesOpt;
+    private final Optional<JdbcTemplate> jdbcOpt;
+
+    private final long maxCachedVoters;
+
+    // postId -> user ids that currently upvote it
+    private final ConcurrentMap<Long, Voters> voters = new ConcurrentHashMap<>();
+    // postId -> its set being read from the table, while the first touch runs the query
+    private final ConcurrentMap<Long, CompletableFuture<Voters>> loading = new ConcurrentHashMap<>();
+    // (postId, userId) -> +1 (row to insert) / -1 (row to delete); absent when nothing is pending
+    private final ConcurrentMap<VoteKey, Integer> pending = new ConcurrentHashMap<>();
+    // told about the votes the table turned down: post id, +n duplicate votes / -n duplicate retractions
+    private final List<BiConsumer<Long, Integer>> rejectListeners = new CopyOnWriteArrayList<>();
+    // the scheduler, shutdown and VoteJournal.snapshot may all flush; one at a time, so a flush that returns
+    // has seen every row marked before it started either written or put back
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public VoteLedger(Optional<VoteRepository> votesOpt, Optional<JdbcTemplate> jdbcOpt) {
+        this(votesOpt, jdbcOpt, 1_000_000);
+    }
+
+    @Autowired
+    public VoteLedger(Optional<VoteRepository> votesOpt,
+                      Optional<JdbcTemplate> jdbcOpt,
+                      @Value("${upvote.ledger.max-cached-voters:1000000}") long maxCachedVoters) {
+        this.votesOpt = votesOpt;
+        this.jdbcOpt = jdbcOpt;
+        this.maxCachedVoters = maxCachedVoters;
+    }
+
+    // -------------------------------------------------------
+    // Request path
+    // -------------------------------------------------------
+
+    public boolean hasVoted(long postId, long userId) {
+        return withVoters(postId, false, ids -> ids.contains(userId));
+    }
+
+    /** @return true when this call added the vote, false when the user had already voted */
+    public boolean record(long postId, long userId) {
+        return withVoters(postId, true, ids -> {
+            if (!ids.add(userId)) return false;
+            mark(new VoteKey(postId, userId), 1);
+            return true;
+        });
+    }
+
+    /** @return true when this call removed the vote, false when the user had not voted */
+    public boolean retract(long postId, long userId) {
+        return withVoters(postId, true, ids -> {
+            if (!ids.remove(userId)) return false;
+            mark(new VoteKey(postId, userId), -1);
+            return true;
+        });
+    }
+
+    public void onRejected(BiConsumer<Long, Integer> listener) {
+        rejectListeners.add(listener);
+    }
+
+    /** Drop every vote of a deleted post, in memory and in the table. */
+    public void forget(long postId) {
+        loading.remove(postId);
+        voters.remove(postId);
+        pending.keySet().removeIf(k -> k.postId() == postId);
+        jdbcOpt.ifPresent(jdbc -> jdbc.update(DELETE_POST_SQL, postId));
+    }
+
+    // -------------------------------------------------------
+    // Write-behind flush
+    // -------------------------------------------------------
+    @Scheduled(fixedDelayString = "${upvote.counter.flush-interval-ms:500}")
+    public void flush() {
+        flushNow();
+        trim();
+    }
+
+    /** Write every pending row now; true when all of them reached the table (none was put back for a retry). */
+    public boolean flushNow() {
+        if (jdbcOpt.isEmpty()) return true;
+        flushLock.lock();
+        try {
+            List<Object[]> inserts = new ArrayList<>();
+            List<Object[]> deletes = new ArrayList<>();
+            for (Map.Entry<VoteKey, Integer> e : pending.entrySet()) {
+                // a concurrent toggle changes the value, so the conditional remove skips it until the next pass
+                if (!pending.remove(e.getKey(), e.getValue())) continue;
+                Object[] args = {e.getKey().postId(), e.getKey().userId()};
+                (e.getValue() > 0 ? inserts : deletes).add(args);
+            }
+
+            boolean written = write(DELETE_SQL, deletes, -1);
+            return write(INSERT_SQL, inserts, 1) && written;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushNow();
+    }
+
+    /** User ids held in memory across all cached posts; read without locking, so an estimate. */
+    long cachedVoters() {
+        long total = 0;
+        for (Voters v : voters.values()) total += v.ids.size();
+        return total;
+    }
+
+    // drops the least recently used sets until at most maxCachedVoters ids are cached. Holding flushLock, every
+    // row marked so far is either in pending or in the table; a set with pending rows, or changed since the
+    // pass looked at it, is kept. Without a repository the table is never read back, so nothing is dropped
+    void trim() {
+        if (votesOpt.isEmpty()) return;
+        long cached = cachedVoters();
+        if (cached <= maxCachedVoters) return;
+        flushLock.lock();
+        try {
+            List<Candidate> candidates = new ArrayList<>(voters.size());
+            for (Map.Entry<Long, Voters> e : voters.entrySet()) {
+                Voters v = e.getValue();
+                synchronized (v) {
+                    candidates.add(new Candidate(e.getKey(), v, v.touched, v.changes, v.ids.size()));
+                }
+            }
+            Set<Long> unwritten = new HashSet<>();
+            pending.keySet().forEach(k -> unwritten.add(k.postId()));
+            candidates.sort(Comparator.comparingLong(Candidate::touched));
+
+            int dropped = 0;
+            for (Candidate c : candidates) {
+                if (cached <= maxCachedVoters) break;
+                if (unwritten.contains(c.postId())) continue;
+                synchronized (c.voters()) {
+                    if (c.voters().changes != c.changes() || !voters.remove(c.postId(), c.voters())) continue;
+                    c.voters().evicted = true;
+                }
+                cached -= c.size();
+                dropped++;
+            }
+            log.debug("Vote ledger dropped {} posts from memory, {} voters still cached", dropped, cached);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // false when a row failed and was put back
+    private boolean write(String sql, List<Object[]> rows, int delta) {
+        if (rows.isEmpty()) return true;
+        boolean written = true;
+        JdbcTemplate jdbc = jdbcOpt.get();
+        Map<Long, Integer> rejected = new HashMap<>();
+        try {
+            int[] counts = jdbc.batchUpdate(sql, rows);
+            for (int i = 0; counts != null && i < counts.length; i++) {
+                if (counts[i] == 0) rejected.merge((Long) rows.get(i)[0], delta, Integer::sum);
+            }
+        } catch (DataAccessException ex) {
+            log.warn("Vote ledger batch failed ({} rows), retrying row by row: {}", rows.size(), ex.getMessage());
+            for (Object[] row : rows) {
+                try {
+                    if (jdbc.update(sql, row) == 0) rejected.merge((Long) row[0], delta, Integer::sum);
+                } catch (DataIntegrityViolationException dup) {
+                    // another node inserted the row first: the table is in the wanted state, the count is one ahead
+                    rejected.merge((Long) row[0], delta, Integer::sum);
+                } catch (DataAccessException retry) {
+                    mark(new VoteKey((Long) row[0], (Long) row[1]), delta);
+                    written = false;
+                }
+            }
+        }
+        if (!rejected.isEmpty()) {
+            log.debug("Vote ledger turned down votes already applied elsewhere: {}", rejected);
+            rejected.forEach((postId, votes) -> rejectListeners.forEach(l -> l.accept(postId, votes)));
+        }
+        return written;
+    }
+
+    // -------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------
+
+    private void mark(VoteKey key, int delta) {
+        pending.merge(key, delta, (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+    // runs the action on the post's set under its lock; a set trim() dropped meanwhile is loaded again
+    private boolean withVoters(long postId, boolean change, Predicate<LongHashSet> action) {
+        while (true) {
+            Voters v = voters(postId);
+            synchronized (v) {
+                if (v.evicted) continue;
+                v.touched = System.nanoTime();
+                if (change) v.changes++;
+                return action.test(v.ids);
+            }
+        }
+    }
+
+    // first touch loads the post's voters once from the ledger table. The query runs outside both maps (a
+    // computeIfAbsent would hold a ConcurrentHashMap bin lock over JDBC); other first touches of the post wait
+    // on its loading future. Installing goes through the loading entry, so a forget() during the query wins and
+    // the caller gets a set nobody else sees
+    private Voters voters(long postId) {
+        Voters set = voters.get(postId);
+        if (set != null) return set;
+        CompletableFuture<Voters> load = new CompletableFuture<>();
+        CompletableFuture<Voters> inFlight = loading.putIfAbsent(postId, load);
+        if (inFlight != null) return await(inFlight);
+        try {
+            Voters loaded = voters.get(postId);
+            if (loaded == null) {
+                List<Long> ids = votesOpt.map(r -> r.findUserIdsByPostId(postId)).orElse(List.of());
+                loaded = new Voters(new LongHashSet(ids.size()));
+                ids.forEach(loaded.ids::add);
+            }
+            Voters fetched = loaded;
+            Voters[] installed = {fetched};
+            loading.computeIfPresent(postId, (k, f) -> {
+                if (f != load) return f; // forgotten meanwhile and another first touch registered its own load
+                installed[0] = voters.computeIfAbsent(postId, x -> fetched);
+                return null;
+            });
+            load.complete(installed[0]);
+            return installed[0];
+        } catch (RuntimeException ex) {
+            loading.remove(postId, load);
+            load.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    // the loader's own exception, not a CompletionException around it
+    private static Voters await(CompletableFuture<Voters> load) {
+        try {
+            return load.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            throw ex;
+        }
+    }
+
+    private record VoteKey(long postId, long userId) {}
+
+    // one post's voters, guarded by its own monitor
+    private static final class Voters {
+        final LongHashSet ids;
+        long touched;    // System.nanoTime() of the last use, least recently used are dropped first
+        long changes;    // record/retract calls, so trim() can tell the set changed after it looked
+        boolean evicted; // dropped by trim(): whoever still holds it loads the post again
+
+        Voters(LongHashSet ids) {
+            this.ids = ids;
+        }
+    }
+
+    private record Candidate(long postId, Voters voters, long touched, long changes, int size) {}
+}
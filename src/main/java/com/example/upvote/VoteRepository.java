@@ -0,0 +1,13 @@
+package com.example.upvote;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface VoteRepository extends JpaRepository<Vote, Long> {
+
+    @Query("select v.userId from Vote v where v.postId = :postId")
+    List<Long> findUserIdsByPostId(@Param("postId") Long postId);
+}
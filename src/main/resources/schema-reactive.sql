@@ -0,0 +1,27 @@
+-- Tables of the reactive profile on embedded H2 (same shape as the JPA entities: Post, Vote, AppUser).
+-- Only run for embedded databases; against MySQL the servlet app's ddl-auto owns the schema.
+CREATE TABLE IF NOT EXISTS post (
+    id         BIGINT AUTO_INCREMENT PRIMARY KEY,
+    title      VARCHAR(255),
+    upvotes    INT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP(6) WITH TIME ZONE,
+    hot_score  DOUBLE PRECISION NOT NULL DEFAULT 0,
+    version    BIGINT NOT NULL DEFAULT 0
+);
+CREATE INDEX IF NOT EXISTS idx_post_upvotes_id ON post (upvotes DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_post_hot_id ON post (hot_score DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_post_created_at ON post (created_at);
+
+CREATE TABLE IF NOT EXISTS post_vote (
+    id      BIGINT AUTO_INCREMENT PRIMARY KEY,
+    post_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    CONSTRAINT uk_post_vote_post_user UNIQUE (post_id, user_id)
+);
+
+CREATE TABLE IF NOT EXISTS app_user (
+    id            BIGINT AUTO_INCREMENT PRIMARY KEY,
+    username      VARCHAR(255) NOT NULL UNIQUE,
+    password_hash VARCHAR(255) NOT NULL,
+    role          VARCHAR(255) NOT NULL
+);
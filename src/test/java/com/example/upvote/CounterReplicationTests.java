@@ -0,0 +1,133 @@
+package com.example.upvote;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CounterReplicationTests {
+
+	@Test
+	void nodesConvergeAndPersistTheSameTotal() {
+		InMemoryPostStore store = new InMemoryPostStore();
+		long id = store.save(new Post("replicated")).getId();
+		store.addUpvotes(Map.of(id, 10L));
+		VoteCounter a = new VoteCounter(store, false, true, "a");
+		VoteCounter b = new VoteCounter(store, false, true, "b");
+
+		a.increment(id);
+		a.increment(id);
+		b.increment(id);
+		b.decrement(id);
+		b.increment(id);
+		assertThat(a.current(id)).hasValue(12);
+
+		// a lost batch changes nothing once a later state (or anti-entropy) arrives
+		a.flush();
+		a.unsent();
+		a.increment(id);
+		gossip(a, b);
+		assertThat(a.current(id)).hasValue(14);
+		assertThat(b.current(id)).hasValue(14);
+
+		a.flush();
+		b.flush();
+		assertThat(store.findById(id).orElseThrow().getUpvotes()).isEqualTo(14);
+		// a node joining later starts from the persisted slots and agrees
+		assertThat(new VoteCounter(store, false, true, "c").current(id)).hasValue(14);
+		assertThat(store.counterStates(List.of(id)).get(0).base()).isEqualTo(10);
+	}
+
+	@Test
+	void sameUserVotingThroughTwoNodesCountsOnce() {
+		InMemoryPostStore store = new InMemoryPostStore();
+		long id = store.save(new Post("voted twice")).getId();
+		JdbcTemplate jdbc = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:two-nodes;DB_CLOSE_DELAY=-1"));
+		jdbc.execute("CREATE TABLE post_vote (id BIGINT AUTO_INCREMENT PRIMARY KEY, post_id BIGINT NOT NULL,"
+				+ " user_id BIGINT NOT NULL, CONSTRAINT uk_post_vote_post_user UNIQUE (post_id, user_id))");
+
+		VoteCounter a = new VoteCounter(store, false, true, "a");
+		VoteCounter b = new VoteCounter(store, false, true, "b");
+		VoteLedger ledgerA = new VoteLedger(Optional.empty(), Optional.of(jdbc));
+		VoteLedger ledgerB = new VoteLedger(Optional.empty(), Optional.of(jdbc));
+		ledgerA.onRejected(a::revert);
+		ledgerB.onRejected(b::revert);
+
+		// user 7 upvotes on both nodes before either ledger reached the table
+		assertThat(ledgerA.record(id, 7L)).isTrue();
+		a.increment(id);
+		assertThat(ledgerB.record(id, 7L)).isTrue();
+		b.increment(id);
+		ledgerA.flush();
+		ledgerB.flush(); // the unique key turns b's row down: b takes its vote back
+		gossip(a, b);
+		assertThat(a.current(id)).hasValue(1);
+		assertThat(b.current(id)).hasValue(1);
+
+		// and retracts on both: only one DELETE finds the row
+		assertThat(ledgerA.retract(id, 7L)).isTrue();
+		a.decrement(id);
+		assertThat(ledgerB.retract(id, 7L)).isTrue();
+		b.decrement(id);
+		ledgerB.flush();
+		ledgerA.flush();
+		gossip(a, b);
+		assertThat(a.current(id)).hasValue(0);
+		assertThat(b.current(id)).hasValue(0);
+
+		a.flush();
+		b.flush();
+		assertThat(store.findById(id).orElseThrow().getUpvotes()).isZero();
+		assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM post_vote", Long.class)).isZero();
+	}
+
+	@Test
+	void aRestartedNodeResumesItsSlotAndLosesNoNewVote() {
+		InMemoryPostStore store = new InMemoryPostStore();
+		long id = store.save(new Post("restarted")).getId();
+		VoteCounter a = new VoteCounter(store, false, true, "a");
+		VoteCounter b = new VoteCounter(store, false, true, "b");
+
+		for (int i = 0; i < 3; i++) a.increment(id);
+		gossip(a, b); // flushed and shipped
+		a.increment(id);
+		a.increment(id);
+		// not flushed yet, so not shipped either: b only has what the database has
+		a.unsent();
+		a.snapshot(1000, b::merge);
+		b.snapshot(1000, deltas -> assertThat(deltas.slots().get("a")).containsExactly(id, 3, 0));
+
+		// a crashes with its last two votes, comes back with the same slot and counts one more
+		VoteCounter restarted = new VoteCounter(store, false, true, "a");
+		assertThat(restarted.slot()).isEqualTo("a");
+		assertThat(restarted.current(id)).hasValue(3);
+		restarted.increment(id);
+		gossip(restarted, b);
+		assertThat(restarted.current(id)).hasValue(4);
+		assertThat(b.current(id)).hasValue(4);
+
+		b.flush();
+		assertThat(store.findById(id).orElseThrow().getUpvotes()).isEqualTo(4);
+		// still one slot per node
+		assertThat(store.counterStates(List.of(id)).get(0).slots()).extracting(PnCounter.Slot::node)
+				.containsExactlyInAnyOrder("a");
+	}
+
+	private static void gossip(VoteCounter a, VoteCounter b) {
+		LoopbackTransport.Hub hub = new LoopbackTransport.Hub();
+		LoopbackTransport ta = new LoopbackTransport(hub);
+		LoopbackTransport tb = new LoopbackTransport(hub);
+		ta.onReceive(a::merge);
+		tb.onReceive(b::merge);
+		a.flush();
+		b.flush();
+		ta.send(a.unsent());
+		tb.send(b.unsent());
+		a.snapshot(1000, ta::send);
+	}
+}
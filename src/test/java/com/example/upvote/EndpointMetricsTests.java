@@ -0,0 +1,64 @@
+package com.example.upvote;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class EndpointMetricsTests {
+
+	@Test
+	void recordsOnePerRequestTaggedByEndpointAndOutcome() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		EndpointMetrics metrics = new EndpointMetrics(registry);
+		HandlerMethod get = new HandlerMethod(mock(PostController.class), PostController.class.getMethod("get", Long.class));
+
+		handle(metrics, get, 200);
+		handle(metrics, get, 404);
+		handle(metrics, get, 404);
+		handle(metrics, get, 503);
+
+		assertThat(count(registry, "get", "ok")).isEqualTo(1);
+		assertThat(count(registry, "get", "not_found")).isEqualTo(2);
+		assertThat(count(registry, "get", "unavailable")).isEqualTo(1);
+		assertThat(count(registry, "get", "error")).isZero();
+	}
+
+	@Test
+	void votesTurnedAwayByTheRateLimitAreRecordedAsRejected() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		EndpointMetrics metrics = new EndpointMetrics(registry);
+		RateLimitFilter filter = new RateLimitFilter(registry, metrics, 1, 0.001, 50, 5, 0.5, 20, 5, 1000, 60_000);
+
+		assertThat(vote(filter, "POST", "/posts/1/upvote")).isEqualTo(200);
+		assertThat(vote(filter, "POST", "/posts/1/%75pvote")).isEqualTo(429); // same vote, percent-encoded
+		assertThat(vote(filter, "DELETE", "/posts/1/upvote")).isEqualTo(429);
+
+		assertThat(count(registry, "upvote", "rejected")).isEqualTo(1);
+		assertThat(count(registry, "removeUpvote", "rejected")).isEqualTo(1);
+	}
+
+	private static int vote(RateLimitFilter filter, String method, String uri) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, new MockFilterChain());
+		return response.getStatus();
+	}
+
+	private static void handle(EndpointMetrics metrics, HandlerMethod handler, int status) {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		metrics.preHandle(request, response, handler);
+		response.setStatus(status);
+		metrics.afterCompletion(request, response, handler, null);
+	}
+
+	private static long count(SimpleMeterRegistry registry, String endpoint, String outcome) {
+		return registry.get(EndpointMetrics.TIMER).tag("endpoint", endpoint).tag("outcome", outcome).timer().count();
+	}
+}
@@ -0,0 +1,102 @@
+package com.example.upvote;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class HotRankerTests {
+
+	private static final Instant NOW = Instant.parse("2026-01-01T12:00:00Z");
+
+	@Test
+	void scoreIsUpvotesOverAgePlusTwoToTheGravity() {
+		HotRanker ranker = ranker(new InMemoryPostStore());
+
+		assertThat(ranker.score(10, NOW, NOW)).isCloseTo(10 / Math.pow(2, 1.8), within(1e-9));
+		assertThat(ranker.score(10, NOW.minus(Duration.ofHours(1)), NOW)).isCloseTo(10 / Math.pow(3, 1.8), within(1e-9));
+		assertThat(ranker.score(10, NOW.minus(Duration.ofMinutes(90)), NOW)).isCloseTo(10 / Math.pow(3.5, 1.8), within(1e-9));
+		// older posts need more votes to rank alike
+		assertThat(ranker.score(100, NOW.minus(Duration.ofHours(24)), NOW)).isLessThan(ranker.score(10, NOW, NOW));
+		// created "in the future" (clock skew between nodes) counts as brand new
+		assertThat(ranker.score(10, NOW.plusSeconds(30), NOW)).isEqualTo(ranker.score(10, NOW, NOW));
+	}
+
+	@Test
+	void postsOutsideTheWindowScoreZero() {
+		HotRanker ranker = ranker(new InMemoryPostStore());
+
+		assertThat(ranker.score(1000, NOW.minus(Duration.ofHours(72)), NOW)).isPositive();
+		assertThat(ranker.score(1000, NOW.minus(Duration.ofHours(72)).minusMillis(1), NOW)).isZero();
+		assertThat(ranker.score(1000, null, NOW)).isZero();
+	}
+
+	@Test
+	void decayExpiresPostsThatLeftTheWindowAndRescoresTheRest() {
+		InMemoryPostStore store = new InMemoryPostStore();
+		Instant now = Instant.now();
+		Post old = store.save(post("old", now.minus(Duration.ofHours(80))));
+		Post young = store.save(post("young", now.minus(Duration.ofHours(1))));
+		store.addUpvotes(Map.of(old.getId(), 50L, young.getId(), 5L));
+		store.updateHotScores(Map.of(old.getId(), 3.0, young.getId(), 99.0)); // stale scores from earlier passes
+
+		ranker(store).decay();
+
+		assertThat(store.findById(old.getId()).orElseThrow().getHotScore()).isZero();
+		assertThat(store.findById(young.getId()).orElseThrow().getHotScore()).isCloseTo(5 / Math.pow(3, 1.8), within(0.01));
+	}
+
+	@Test
+	void onlyPostsMarkedActiveAreRescored() {
+		InMemoryPostStore store = new InMemoryPostStore();
+		Post voted = store.save(new Post("voted"));
+		Post quiet = store.save(new Post("quiet"));
+		store.addUpvotes(Map.of(voted.getId(), 4L, quiet.getId(), 7L));
+		HotRanker ranker = ranker(store);
+
+		ranker.markActive(voted.getId());
+		ranker.scoreActive();
+
+		assertThat(store.findById(voted.getId()).orElseThrow().getHotScore()).isPositive();
+		assertThat(store.findById(quiet.getId()).orElseThrow().getHotScore()).isZero();
+
+		// the active set was drained: nothing is written until another vote marks a post
+		store.updateHotScores(Map.of(voted.getId(), 0.0));
+		ranker.scoreActive();
+		assertThat(store.findById(voted.getId()).orElseThrow().getHotScore()).isZero();
+	}
+
+	@Test
+	void decayReadsTheWindowInPagesWithoutSkippingPostsCreatedTogether() {
+		InMemoryPostStore store = spy(new InMemoryPostStore());
+		Instant now = Instant.now();
+		List<Post> posts = new ArrayList<>();
+		// 1200 posts, ten to each creation instant, so page boundaries fall inside a run of equal timestamps
+		for (int i = 0; i < 1200; i++) {
+			posts.add(store.save(post("p" + i, now.minus(Duration.ofMinutes(1200 - i / 10)))));
+		}
+		posts.forEach(p -> store.addUpvotes(Map.of(p.getId(), 1L)));
+
+		ranker(store).decay();
+
+		verify(store, times(3)).createdAfter(any(Instant.class), anyLong(), eq(500));
+		assertThat(posts).allSatisfy(p -> assertThat(store.findById(p.getId()).orElseThrow().getHotScore()).isPositive());
+	}
+
+	private static HotRanker ranker(PostStore store) {
+		VoteCounter counter = new VoteCounter(store);
+		return new HotRanker(store, counter, new PostChangeLog(counter, 100), 1.8, 72);
+	}
+
+	private static Post post(String title, Instant createdAt) {
+		return Post.restore(null, title, 0, createdAt, 0);
+	}
+}
@@ -0,0 +1,54 @@
+package com.example.upvote;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryPostStoreTests {
+
+	@Test
+	void pagesFollowUpvoteOrderAcrossCursors() {
+		InMemoryPostStore store = new InMemoryPostStore();
+		Post a = store.save(new Post("a"));
+		Post b = store.save(new Post("b"));
+		Post c = store.save(new Post("c"));
+		store.addUpvotes(Map.of(a.getId(), 5L, c.getId(), 2L));
+
+		List<Post> first = store.page(PostStore.Sort.TOP, null, 2);
+		assertThat(first).extracting(Post::getTitle).containsExactly("a", "c");
+
+		Post last = first.get(1);
+		List<Post> second = store.page(PostStore.Sort.TOP, new PostPage.Cursor(last.getUpvotes(), last.getId()), 2);
+		assertThat(second).extracting(Post::getTitle).containsExactly("b");
+	}
+
+	@Test
+	void deleteRemovesFromIndexes() {
+		InMemoryPostStore store = new InMemoryPostStore();
+		Post a = store.save(new Post("a"));
+
+		assertThat(store.delete(a.getId())).isTrue();
+		assertThat(store.delete(a.getId())).isFalse();
+		assertThat(store.findById(a.getId())).isEmpty();
+		assertThat(store.page(PostStore.Sort.HOT, null, 10)).isEmpty();
+	}
+
+	@Test
+	void saveAllKeepsOrderCountsAndCreationTime() {
+		InMemoryPostStore store = new InMemoryPostStore();
+		Instant then = Instant.parse("2024-01-01T00:00:00Z");
+
+		List<Post> saved = store.saveAll(List.of(
+				Post.restore(null, "old", 4, then, 0),
+				new Post("new")));
+
+		assertThat(saved).extracting(Post::getTitle).containsExactly("old", "new");
+		assertThat(saved.get(0).getId()).isLessThan(saved.get(1).getId());
+		assertThat(saved.get(0).getCreatedAt()).isEqualTo(then);
+		assertThat(store.page(PostStore.Sort.TOP, null, 1)).extracting(Post::getUpvotes).containsExactly(4);
+	}
+}
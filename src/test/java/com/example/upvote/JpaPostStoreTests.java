@@ -0,0 +1,122 @@
+package com.example.upvote;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class JpaPostStoreTests {
+
+	@Autowired
+	PostStore store;
+
+	@Test
+	void concurrentIncrementsLoseNothingAndEachSeesItsOwnCount() throws Exception {
+		long id = store.save(new Post("contended")).getId();
+		Set<Long> seen = ConcurrentHashMap.newKeySet();
+
+		run(64, 50, () -> seen.add(store.incrementUpvotes(id).getAsLong()));
+
+		assertThat(store.findById(id)).get().extracting(Post::getUpvotes).isEqualTo(64 * 50);
+		// every increment got a distinct post-update count: no two transactions saw the same row state
+		assertThat(seen).containsExactlyInAnyOrderElementsOf(
+				LongStream.rangeClosed(1, 64 * 50).boxed().collect(Collectors.toList()));
+	}
+
+	@Test
+	void concurrentDecrementsStopAtZero() throws Exception {
+		Post post = new Post("cooling");
+		post.setUpvotes(10);
+		long id = store.save(post).getId();
+		Set<Long> seen = ConcurrentHashMap.newKeySet();
+
+		run(64, 1, () -> seen.add(store.decrementUpvotesFloorZero(id).getAsLong()));
+
+		assertThat(store.findById(id)).get().extracting(Post::getUpvotes).isEqualTo(0);
+		assertThat(seen).containsExactlyInAnyOrderElementsOf(List.of(9L, 8L, 7L, 6L, 5L, 4L, 3L, 2L, 1L, 0L));
+	}
+
+	@Test
+	void createdAfterPagesThroughEqualTimestampsInIdOrder() {
+		// far enough ahead that no other test's posts fall in range
+		Instant at = Instant.parse("2100-01-01T00:00:00Z");
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			ids.add(store.save(Post.restore(null, "aged " + i, 0, i < 3 ? at : at.plusSeconds(60), 0)).getId());
+		}
+
+		List<PostAge> first = store.createdAfter(at.minusSeconds(1), Long.MAX_VALUE, 2);
+		PostAge last = first.get(1);
+		List<PostAge> second = store.createdAfter(last.getCreatedAt(), last.getId(), 2);
+		PostAge end = second.get(1);
+		List<PostAge> third = store.createdAfter(end.getCreatedAt(), end.getId(), 2);
+
+		assertThat(first).extracting(PostAge::getId).containsExactly(ids.get(0), ids.get(1));
+		assertThat(second).extracting(PostAge::getId).containsExactly(ids.get(2), ids.get(3));
+		assertThat(third).extracting(PostAge::getId).containsExactly(ids.get(4));
+	}
+
+	@Test
+	void unknownPostIsEmpty() {
+		assertThat(store.incrementUpvotes(-1)).isEqualTo(OptionalLong.empty());
+		assertThat(store.decrementUpvotesFloorZero(-1)).isEqualTo(OptionalLong.empty());
+	}
+
+	@Test
+	void titleEditsAreVersionedAndLeaveTheCountAlone() {
+		long id = store.save(new Post("v0")).getId();
+		store.incrementUpvotes(id);
+
+		Post edited = store.updateTitle(id, "v1", 0).orElseThrow();
+		assertThat(edited.getVersion()).isEqualTo(1);
+		assertThat(edited.getUpvotes()).isEqualTo(1);
+
+		// a writer still holding version 0 lost the race
+		assertThatThrownBy(() -> store.updateTitle(id, "late", 0)).isInstanceOf(OptimisticLockingFailureException.class);
+		assertThatThrownBy(() -> store.delete(id, 0)).isInstanceOf(OptimisticLockingFailureException.class);
+		assertThat(store.findById(id)).get().extracting(Post::getTitle).isEqualTo("v1");
+
+		// votes do not move the version, so they never conflict with an edit
+		store.incrementUpvotes(id);
+		assertThat(store.delete(id, 1)).isTrue();
+		assertThat(store.updateTitle(id, "gone", 1)).isEmpty();
+	}
+
+	// threads start together and each runs the action n times
+	private static void run(int threads, int n, Runnable action) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		for (int t = 0; t < threads; t++) {
+			pool.execute(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = 0; i < n; i++) action.run();
+			});
+		}
+		start.countDown();
+		pool.shutdown();
+		assertThat(pool.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+	}
+}
@@ -0,0 +1,88 @@
+package com.example.upvote;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PostChangeLogTests {
+
+	@Test
+	void listsWhatChangedSinceAVersion() {
+		PostChangeLog changes = new PostChangeLog(new VoteCounter(new InMemoryPostStore()), 100);
+		changes.created(1);
+		changes.created(2);
+		long seen = changes.version();
+
+		changes.changed(1);
+		changes.changed(1);
+		changes.created(3);
+		changes.changed(3);
+		changes.deleted(2);
+		changes.bump();
+
+		PostChangeLog.Delta delta = changes.since(seen).orElseThrow();
+		assertThat(delta.version()).isEqualTo(changes.version());
+		assertThat(delta.created()).containsExactly(3L);
+		assertThat(delta.changed()).containsExactly(1L);
+		assertThat(delta.deleted()).containsExactly(2L);
+		assertThat(changes.since(changes.version()).orElseThrow().size()).isZero();
+		// a version this log never issued
+		assertThat(changes.since(changes.version() + 1)).isEmpty();
+	}
+
+	@Test
+	void forgetsTheOldestChangesBeyondItsBound() {
+		PostChangeLog changes = new PostChangeLog(new VoteCounter(new InMemoryPostStore()), 2);
+		long start = changes.version();
+		changes.changed(1);
+		changes.changed(1); // one entry per post
+		changes.changed(2);
+		changes.trim();
+		assertThat(changes.since(start)).isPresent();
+
+		long beforeThree = changes.version();
+		changes.changed(3);
+		assertThat(changes.since(start)).isPresent(); // trimmed off the write path
+		changes.trim();
+		assertThat(changes.size()).isEqualTo(2);
+		assertThat(changes.since(start)).isEmpty();
+		assertThat(changes.since(beforeThree).orElseThrow().changed()).containsExactly(3L);
+	}
+
+	@Test
+	void aReaderFollowingConcurrentWritersMissesNoPost() throws Exception {
+		PostChangeLog changes = new PostChangeLog(new VoteCounter(new InMemoryPostStore()), 100_000);
+		int writers = 8;
+		int perWriter = 5_000;
+		long at = changes.version();
+		ExecutorService pool = Executors.newFixedThreadPool(writers);
+		for (int w = 0; w < writers; w++) {
+			long first = (long) w * perWriter;
+			pool.execute(() -> {
+				for (long id = first; id < first + perWriter; id++) {
+					changes.changed(id);
+					changes.changed(id % 100); // hot posts, rewritten all the time
+				}
+			});
+		}
+		pool.shutdown();
+
+		Set<Long> seen = new HashSet<>();
+		boolean done = false;
+		while (!done) {
+			done = pool.isTerminated(); // one more pass after the last write
+			PostChangeLog.Delta delta = changes.since(at).orElseThrow();
+			seen.addAll(delta.changed());
+			seen.addAll(delta.created());
+			at = delta.version();
+		}
+		assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(seen).hasSize(writers * perWriter);
+	}
+}
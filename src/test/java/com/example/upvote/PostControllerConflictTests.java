@@ -0,0 +1,118 @@
+package com.example.upvote;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "upvote.conflict.backoff-ms=1")
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class PostControllerConflictTests {
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	MeterRegistry registry;
+
+	@MockitoSpyBean
+	PostStore store;
+
+	@AfterEach
+	void resetStore() {
+		reset(store);
+	}
+
+	@Test
+	void aStaleVersionGets409WithTheCurrentPost() throws Exception {
+		Post post = store.save(new Post("original"));
+		double stale = conflicts("update", "stale");
+
+		mvc.perform(edit(post.getId(), "late edit", post.getVersion() + 1))
+				.andExpect(status().isConflict())
+				.andExpect(jsonPath("$.current.id").value(post.getId()))
+				.andExpect(jsonPath("$.current.title").value("original"))
+				.andExpect(jsonPath("$.current.version").value(post.getVersion()));
+
+		verify(store, never()).updateTitle(anyLong(), anyString(), anyLong());
+		assertThat(conflicts("update", "stale")).isEqualTo(stale + 1);
+		assertThat(store.findById(post.getId())).get().extracting(Post::getTitle).isEqualTo("original");
+	}
+
+	@Test
+	void aStaleVersionCannotDelete() throws Exception {
+		Post post = store.save(new Post("keep me"));
+		double stale = conflicts("delete", "stale");
+
+		mvc.perform(delete("/posts/{id}", post.getId()).param("version", Long.toString(post.getVersion() + 1)))
+				.andExpect(status().isConflict())
+				.andExpect(jsonPath("$.current.id").value(post.getId()));
+
+		assertThat(conflicts("delete", "stale")).isEqualTo(stale + 1);
+		assertThat(store.findById(post.getId())).isPresent();
+	}
+
+	@Test
+	void aLostRaceIsRetriedAndSucceeds() throws Exception {
+		Post post = store.save(new Post("contended"));
+		doThrow(new OptimisticLockingFailureException("lost the race"))
+				.doCallRealMethod()
+				.when(store).updateTitle(eq(post.getId()), anyString(), anyLong());
+		double retried = conflicts("update", "retried");
+		double exhausted = conflicts("update", "exhausted");
+
+		mvc.perform(edit(post.getId(), "second try", post.getVersion()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.title").value("second try"));
+
+		verify(store, times(2)).updateTitle(eq(post.getId()), eq("second try"), anyLong());
+		assertThat(conflicts("update", "retried")).isEqualTo(retried + 1);
+		assertThat(conflicts("update", "exhausted")).isEqualTo(exhausted);
+	}
+
+	@Test
+	void exhaustedRetriesGet409WithTheCurrentPost() throws Exception {
+		Post post = store.save(new Post("always contended"));
+		doThrow(new OptimisticLockingFailureException("lost the race"))
+				.when(store).updateTitle(eq(post.getId()), anyString(), anyLong());
+		double retried = conflicts("update", "retried");
+		double exhausted = conflicts("update", "exhausted");
+
+		mvc.perform(edit(post.getId(), "never lands", null))
+				.andExpect(status().isConflict())
+				.andExpect(jsonPath("$.current.title").value("always contended"));
+
+		// upvote.conflict.max-attempts=4: three retries, then the fallback
+		verify(store, times(4)).updateTitle(eq(post.getId()), anyString(), anyLong());
+		assertThat(conflicts("update", "retried")).isEqualTo(retried + 3);
+		assertThat(conflicts("update", "exhausted")).isEqualTo(exhausted + 1);
+	}
+
+	private static RequestBuilder edit(long id, String title, Long version) {
+		String body = version == null
+				? "{\"title\":\"" + title + "\"}"
+				: "{\"title\":\"" + title + "\",\"version\":" + version + "}";
+		return put("/posts/{id}", id).contentType(MediaType.APPLICATION_JSON).content(body);
+	}
+
+	private double conflicts(String op, String outcome) {
+		return registry.counter(ConflictRetry.CONFLICTS, "op", op, "outcome", outcome).count();
+	}
+}
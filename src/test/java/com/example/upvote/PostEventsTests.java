@@ -0,0 +1,68 @@
+package com.example.upvote;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class PostEventsTests {
+
+	@Test
+	void aStuckSubscriberIsDroppedAndTheOthersKeepReceiving() throws Exception {
+		PostEvents events = new PostEvents(new ObjectMapper(), 60_000, 2, 200, new MockEnvironment());
+		CountDownLatch unstick = new CountDownLatch(1);
+		CountDownLatch closed = new CountDownLatch(1);
+		AtomicInteger stuckSends = new AtomicInteger();
+		AtomicInteger received = new AtomicInteger();
+		SseEmitter stuck = new SseEmitter() {
+			@Override
+			public void send(SseEventBuilder builder) throws IOException {
+				stuckSends.incrementAndGet();
+				try {
+					unstick.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+			@Override
+			public void complete() {
+				closed.countDown();
+			}
+		};
+		SseEmitter healthy = new SseEmitter() {
+			@Override
+			public void send(SseEventBuilder builder) {
+				received.incrementAndGet();
+			}
+		};
+		events.subscribe(stuck);
+		events.subscribe(healthy);
+
+		assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+			events.created(Post.restore(1L, "first", 0, null, 0));
+			events.broadcast();
+			events.created(Post.restore(2L, "second", 0, null, 0));
+			events.broadcast();
+		});
+
+		assertThat(received).hasValue(2);
+		assertThat(stuckSends).hasValue(1);
+		assertThat(events.subscriberCount()).isEqualTo(1);
+
+		// closed once its write finally returns, not while it holds the emitter
+		assertThat(closed.getCount()).isEqualTo(1);
+		unstick.countDown();
+		assertThat(closed.await(5, TimeUnit.SECONDS)).isTrue();
+		events.shutdown();
+	}
+}
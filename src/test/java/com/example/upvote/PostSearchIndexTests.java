@@ -0,0 +1,68 @@
+package com.example.upvote;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PostSearchIndexTests {
+
+	@Test
+	void ranksByMatchedWordsThenUpvotes() {
+		InMemoryPostStore store = new InMemoryPostStore();
+		Post demo = store.save(new Post("Upvote demo app"));
+		Post spring = store.save(new Post("Demo of Spring"));
+		Post boot = store.save(new Post("Spring-Boot upvote"));
+		Post fun = store.save(new Post("upvotes are fun"));
+		store.addUpvotes(Map.of(boot.getId(), 5L));
+		Leaderboard leaderboard = new Leaderboard(store, new VoteCounter(store));
+		leaderboard.rebuild();
+		PostSearchIndex index = new PostSearchIndex(store, leaderboard);
+		index.rebuild();
+
+		// both words > one whole word (more upvotes first) > a prefix only
+		assertThat(index.search("upvote DEMO", 10)).extracting(Leaderboard.Entry::id)
+				.containsExactly(demo.getId(), boot.getId(), spring.getId(), fun.getId());
+		assertThat(index.search("upv", 2)).extracting(Leaderboard.Entry::id)
+				.containsExactly(boot.getId(), fun.getId());
+	}
+
+	@Test
+	void aCommonWordIsCappedButTheRareWordStillFindsItsPosts() {
+		InMemoryPostStore store = new InMemoryPostStore();
+		Leaderboard leaderboard = new Leaderboard(store, new VoteCounter(store));
+		PostSearchIndex index = new PostSearchIndex(store, leaderboard);
+		for (int i = 0; i < PostSearchIndex.MAX_CANDIDATES + 500; i++) {
+			Post post = store.save(new Post("common post " + i));
+			leaderboard.put(post);
+			index.put(post);
+		}
+		// posted last: the common word's list reaches the cap long before these ids
+		Post rare = store.save(new Post("common zebra"));
+		leaderboard.put(rare);
+		index.put(rare);
+
+		assertThat(index.search("common zebra", 3)).extracting(Leaderboard.Entry::id).first().isEqualTo(rare.getId());
+		assertThat(index.search("common", 10)).hasSize(10);
+	}
+
+	@Test
+	void followsEditsAndDeletes() {
+		InMemoryPostStore store = new InMemoryPostStore();
+		Leaderboard leaderboard = new Leaderboard(store, new VoteCounter(store));
+		PostSearchIndex index = new PostSearchIndex(store, leaderboard);
+		Post post = store.save(new Post("first title"));
+		leaderboard.put(post);
+		index.put(post);
+
+		Post edited = store.updateTitle(post.getId(), "second title", post.getVersion()).orElseThrow();
+		index.put(edited);
+		index.put(post); // a late, older version is ignored
+		assertThat(index.search("first", 10)).isEmpty();
+		assertThat(index.search("second", 10)).hasSize(1);
+
+		index.remove(post.getId());
+		assertThat(index.search("title", 10)).isEmpty();
+	}
+}
@@ -0,0 +1,64 @@
+package com.example.upvote;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "upvote.rate-limit.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class PostTransferControllerTests {
+
+	@Autowired
+	MockMvc mvc;
+
+	@MockitoSpyBean
+	PostEvents events;
+
+	@MockitoSpyBean
+	HotRanker hotRanker;
+
+	@Test
+	void importNeedsASignedInUser() throws Exception {
+		mvc.perform(post("/posts/import").contentType(MediaType.APPLICATION_NDJSON).content("{\"title\":\"anonymous\"}\n"))
+				.andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	void importedPostsAreStreamedAndTheVotedOnesRanked() throws Exception {
+		String body = "{\"title\":\"streamed quiet\"}\n{\"title\":\"streamed voted\",\"upvotes\":4}\n";
+
+		mvc.perform(post("/posts/import").with(user("importer")).contentType(MediaType.APPLICATION_NDJSON).content(body))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.imported").value(2));
+
+		verify(events).created(argThat(p -> p.getTitle().equals("streamed quiet")));
+		verify(events).created(argThat(p -> p.getTitle().equals("streamed voted")));
+		verify(hotRanker, times(1)).markActive(anyLong());
+	}
+
+	@Test
+	void anOverlongLineIsRejectedAndTheOthersAreImported() throws Exception {
+		String huge = "{\"title\":\"" + "x".repeat(PostTransferController.MAX_LINE_BYTES) + "\"}";
+		String body = "{\"title\":\"before\"}\r\n" + huge + "\n\n{\"title\":\"after\",\"upvotes\":2}";
+
+		mvc.perform(post("/posts/import").with(user("importer")).contentType(MediaType.APPLICATION_NDJSON).content(body))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.imported").value(2))
+				.andExpect(jsonPath("$.rejected").value(1))
+				.andExpect(jsonPath("$.errors[0].line").value(2))
+				.andExpect(jsonPath("$.errors[0].error").value("Line longer than 65536 bytes"));
+	}
+}
@@ -0,0 +1,35 @@
+package com.example.upvote;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTests {
+
+	@Test
+	void searchIsLimitedPerCallerAndOtherReadsAreNot() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		RateLimitFilter filter = new RateLimitFilter(registry, new EndpointMetrics(registry),
+				20, 10, 50, 5, 0.5, 2, 0.001, 1000, 60_000);
+
+		assertThat(get(filter, "/posts/search", "10.0.0.1")).isEqualTo(200);
+		assertThat(get(filter, "/posts/search", "10.0.0.1")).isEqualTo(200);
+		assertThat(get(filter, "/posts/search", "10.0.0.1")).isEqualTo(429);
+		assertThat(get(filter, "/posts/search", "10.0.0.2")).isEqualTo(200); // another caller, another bucket
+		for (int i = 0; i < 10; i++) assertThat(get(filter, "/posts/top", "10.0.0.1")).isEqualTo(200);
+
+		assertThat(registry.get("upvote.ratelimit.rejected").tag("rule", "search").counter().count()).isEqualTo(1);
+	}
+
+	private static int get(RateLimitFilter filter, String uri, String address) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+		request.setRemoteAddr(address);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, new MockFilterChain());
+		return response.getStatus();
+	}
+}
@@ -0,0 +1,69 @@
+package com.example.upvote;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterTests {
+
+	private static final long SECOND = 1_000_000_000L;
+
+	@Test
+	void burstThenRefillAtTheConfiguredRate() {
+		RateLimiter limiter = new RateLimiter(3, 1, 1000, 60_000);
+
+		assertThat(limiter.acquire("a", 0)).isZero();
+		assertThat(limiter.acquire("a", 0)).isZero();
+		assertThat(limiter.acquire("a", 0)).isZero();
+		// empty: one token a second
+		assertThat(limiter.acquire("a", 0)).isEqualTo(SECOND);
+		assertThat(limiter.acquire("a", SECOND / 2)).isEqualTo(SECOND / 2);
+		assertThat(limiter.acquire("a", SECOND)).isZero();
+		// other keys have their own bucket
+		assertThat(limiter.acquire("b", SECOND)).isZero();
+	}
+
+	@Test
+	void chargedDebtHoldsBackTheNextRequestsAndIsNotForgotten() {
+		RateLimiter limiter = new RateLimiter(2, 1, 64_000, 1000);
+
+		assertThat(limiter.acquire("batch", 0)).isZero();
+		limiter.charge("batch", 4, 0); // a large batch, billed once admitted: 1 - 4 = -3 tokens
+		assertThat(limiter.acquire("batch", SECOND)).isEqualTo(3 * SECOND);
+		// idle past idle-ms but still in debt: new keys in its stripe do not evict it
+		for (int i = 0; i < 1000; i++) limiter.acquire("other-" + i, 3_200_000_000L);
+		assertThat(limiter.acquire("batch", 3_500_000_000L)).isEqualTo(SECOND / 2);
+		assertThat(limiter.acquire("batch", 4 * SECOND)).isZero();
+	}
+
+	@Test
+	void aFloodOfNewKeysCannotPushOutADrainedBucket() {
+		// one bucket per stripe
+		RateLimiter limiter = new RateLimiter(2, 1, 0, 1000);
+		assertThat(limiter.acquire("flooder", 0)).isZero();
+		assertThat(limiter.acquire("flooder", 0)).isZero();
+
+		// the new key landing in its stripe is turned away, not given the drained bucket's place
+		long turnedAway = 0;
+		for (int i = 0; i < 1000; i++) {
+			if (limiter.acquire("new-" + i, SECOND / 10) > 0) turnedAway++;
+		}
+		assertThat(turnedAway).isPositive();
+		assertThat(limiter.acquire("flooder", SECOND / 10)).isEqualTo(9 * SECOND / 10);
+
+		// once it has refilled it may go, and a new key takes its place
+		assertThat(limiter.acquire("late", 3 * SECOND)).isZero();
+		assertThat(limiter.size()).isEqualTo(64);
+	}
+
+	@Test
+	void staysBoundedAndForgetsIdleBuckets() {
+		RateLimiter limiter = new RateLimiter(1, 1, 640, 1000);
+		for (int i = 0; i < 5000; i++) limiter.acquire("key-" + i, 0);
+		assertThat(limiter.size()).isEqualTo(640);
+
+		// a bucket idle long enough to be full again is dropped when its stripe takes a new key
+		limiter.acquire("late", 10 * SECOND);
+		assertThat(limiter.size()).isLessThan(640);
+	}
+}
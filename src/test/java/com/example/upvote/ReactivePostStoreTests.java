@@ -0,0 +1,50 @@
+package com.example.upvote;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("reactive")
+class ReactivePostStoreTests {
+
+	@Autowired
+	ReactivePostStore store;
+
+	@Test
+	void votesAreCountedOncePerUserWithoutGoingBelowZero() {
+		Post post = store.insert("reactive").block();
+		long id = post.getId();
+
+		// 32 users vote at once, each twice: every second vote is a no-op
+		List<ReactivePostStore.VoteResult> results = Flux.range(1, 64)
+				.flatMap(i -> store.upvote(id, (i + 1) / 2), 16)
+				.collectList().block();
+		assertThat(results).filteredOn(ReactivePostStore.VoteResult::changed).hasSize(32);
+		assertThat(store.findById(id).block().getUpvotes()).isEqualTo(32);
+
+		assertThat(store.unvote(id, 1).block().changed()).isTrue();
+		assertThat(store.unvote(id, 1).block().changed()).isFalse();
+		assertThat(store.findById(id).block().getUpvotes()).isEqualTo(31);
+
+		assertThat(store.upvote(-1, 1).blockOptional()).isEmpty();
+		assertThat(store.delete(id).block()).isTrue();
+		assertThat(store.findById(id).blockOptional()).isEmpty();
+	}
+
+	@Test
+	void streamsEveryPostInTopOrder() {
+		Post low = store.insert("low").block();
+		Post high = store.insert("high").block();
+		store.upvote(high.getId(), 1).block();
+
+		List<Long> ids = store.all().map(Post::getId).collectList().block();
+		assertThat(ids).containsSubsequence(high.getId(), low.getId());
+	}
+}
@@ -0,0 +1,37 @@
+package com.example.upvote;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability // the Prometheus registry is off in tests by default
+@ActiveProfiles("h2")
+class SecurityConfigTests {
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	AppUserService users;
+
+	@Test
+	void prometheusScrapeNeedsTheMetricsRole() throws Exception {
+		users.register(new AppUser("scraper", "scrape-secret", "METRICS"));
+		users.register(new AppUser("voter", "vote-secret", "USER"));
+
+		mvc.perform(get("/actuator/prometheus")).andExpect(status().isUnauthorized());
+		mvc.perform(get("/actuator/prometheus").with(httpBasic("voter", "vote-secret"))).andExpect(status().isForbidden());
+		mvc.perform(get("/actuator/prometheus").with(httpBasic("scraper", "scrape-secret"))).andExpect(status().isOk());
+		mvc.perform(get("/actuator/health")).andExpect(status().isOk());
+	}
+}
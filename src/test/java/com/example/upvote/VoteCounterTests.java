@@ -0,0 +1,156 @@
+package com.example.upvote;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class VoteCounterTests {
+
+	@Test
+	void concurrentIncrementsAreNotLostAndFlushAsOneBatch() throws Exception {
+		PostStore store = mock(PostStore.class);
+		Post post = new Post("hot");
+		post.setUpvotes(3);
+		when(store.isAvailable()).thenReturn(true);
+		when(store.findById(1L)).thenReturn(Optional.of(post));
+
+		VoteCounter counter = new VoteCounter(store);
+
+		ExecutorService pool = Executors.newFixedThreadPool(16);
+		for (int i = 0; i < 10_000; i++) {
+			pool.execute(() -> counter.increment(1L));
+		}
+		pool.shutdown();
+		assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(counter.current(1L)).hasValue(10_003);
+
+		counter.flush();
+		verify(store).addUpvotes(Map.of(1L, 10_000L));
+		verify(store, times(1)).findById(1L);
+	}
+
+	@Test
+	void forgetDuringTheFirstLoadWins() throws Exception {
+		PostStore store = mock(PostStore.class);
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch forgotten = new CountDownLatch(1);
+		when(store.isAvailable()).thenReturn(true);
+		when(store.findById(4L)).thenAnswer(inv -> {
+			loading.countDown();
+			forgotten.await(5, TimeUnit.SECONDS);
+			return Optional.of(new Post("deleted meanwhile"));
+		});
+
+		VoteCounter counter = new VoteCounter(store);
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		Future<OptionalLong> vote = pool.submit(() -> counter.increment(4L));
+		assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+		counter.forget(4L);
+		forgotten.countDown();
+
+		assertThat(vote.get(5, TimeUnit.SECONDS)).isEmpty();
+		assertThat(counter.peek(4L)).isEmpty();
+		pool.shutdown();
+	}
+
+	@Test
+	void aLoadFinishingAfterForgetLeavesTheNextLoadInFlight() throws Exception {
+		PostStore store = mock(PostStore.class);
+		CountDownLatch firstStarted = new CountDownLatch(1);
+		CountDownLatch secondStarted = new CountDownLatch(1);
+		CountDownLatch releaseFirst = new CountDownLatch(1);
+		CountDownLatch releaseSecond = new CountDownLatch(1);
+		when(store.isAvailable()).thenReturn(true);
+		when(store.findById(5L))
+				.thenAnswer(inv -> {
+					firstStarted.countDown();
+					releaseFirst.await(5, TimeUnit.SECONDS);
+					return Optional.of(new Post("deleted meanwhile"));
+				})
+				.thenAnswer(inv -> {
+					secondStarted.countDown();
+					releaseSecond.await(5, TimeUnit.SECONDS);
+					return Optional.of(new Post("recreated"));
+				})
+				.thenReturn(Optional.of(new Post("loaded a third time")));
+
+		VoteCounter counter = new VoteCounter(store);
+		ExecutorService pool = Executors.newFixedThreadPool(3);
+		Future<OptionalLong> stale = pool.submit(() -> counter.increment(5L));
+		assertThat(firstStarted.await(5, TimeUnit.SECONDS)).isTrue();
+		counter.forget(5L);
+		Future<OptionalLong> second = pool.submit(() -> counter.increment(5L));
+		assertThat(secondStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+		// the forgotten load finishes first and must not take the second one's entry with it
+		releaseFirst.countDown();
+		assertThat(stale.get(5, TimeUnit.SECONDS)).isEmpty();
+		Future<OptionalLong> third = pool.submit(() -> counter.increment(5L));
+		verify(store, after(200).times(2)).findById(5L); // the third touch waits on the second load
+		releaseSecond.countDown();
+
+		assertThat(second.get(5, TimeUnit.SECONDS)).isPresent();
+		assertThat(third.get(5, TimeUnit.SECONDS)).isPresent();
+		assertThat(counter.peek(5L)).hasValue(2);
+		verify(store, times(2)).findById(5L);
+		pool.shutdown();
+	}
+
+	@Test
+	void decrementStopsAtZero() {
+		PostStore store = mock(PostStore.class);
+		when(store.isAvailable()).thenReturn(true);
+		when(store.findById(2L)).thenReturn(Optional.of(new Post("cold")));
+
+		VoteCounter counter = new VoteCounter(store);
+
+		assertThat(counter.decrement(2L)).hasValue(0);
+		assertThat(counter.increment(2L)).hasValue(1);
+		assertThat(counter.decrement(2L)).hasValue(0);
+		assertThat(counter.decrement(2L)).hasValue(0);
+	}
+
+	@Test
+	void unknownPostIsEmpty() {
+		PostStore store = mock(PostStore.class);
+		when(store.isAvailable()).thenReturn(true);
+		when(store.findById(anyLong())).thenReturn(Optional.empty());
+
+		VoteCounter counter = new VoteCounter(store);
+
+		assertThat(counter.increment(99L)).isEmpty();
+		verify(store, never()).save(any());
+	}
+
+	@Test
+	void preloadFetchesOnlyMissingPostsInOneLookup() {
+		PostStore store = mock(PostStore.class);
+		when(store.isAvailable()).thenReturn(true);
+		when(store.findById(1L)).thenReturn(Optional.of(new Post("loaded")));
+		PostAge two = mock(PostAge.class);
+		when(two.getId()).thenReturn(2L);
+		when(two.getUpvotes()).thenReturn(7);
+		when(store.ages(List.of(2L, 3L))).thenReturn(List.of(two));
+
+		VoteCounter counter = new VoteCounter(store);
+		counter.increment(1L);
+		counter.preload(List.of(1L, 2L, 3L));
+
+		assertThat(counter.peek(1L)).hasValue(1);
+		assertThat(counter.peek(2L)).hasValue(7);
+		assertThat(counter.peek(3L)).isEmpty();
+		verify(store, times(1)).ages(any());
+	}
+}
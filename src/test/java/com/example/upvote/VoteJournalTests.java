@@ -0,0 +1,173 @@
+package com.example.upvote;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.Mockito.*;
+
+class VoteJournalTests {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void unflushedVotesSurviveACrashAndASnapshot() throws Exception {
+		PostStore store = storeWith(1L, 2L);
+
+		VoteCounter before = new VoteCounter(store);
+		VoteJournal journal = journal(before);
+		journal.start();
+
+		vote(journal, before, 1L, 10);
+		before.flush(); // these 10 reach the store and are marked as flushed
+		verify(store).addUpvotes(Map.of(1L, 10L));
+
+		vote(journal, before, 1L, 3);
+		vote(journal, before, 2L, 200); // spans several 4 KB segments
+		journal.snapshot();
+		vote(journal, before, 2L, 5);
+		// crash: no flush, no stop
+
+		clearInvocations(store);
+		VoteCounter after = new VoteCounter(store);
+		VoteLedger ledger = ledger();
+		journal(after, ledger).start();
+
+		assertThat(after.peek(1L)).hasValue(3);
+		assertThat(after.peek(2L)).hasValue(205);
+		// the votes after the snapshot are back in the ledger; the folded ones were written before folding
+		assertThat(ledger.hasVoted(2L, 104)).isTrue();
+		assertThat(ledger.hasVoted(2L, 105)).isFalse();
+		// every recovered post came from one lookup
+		verify(store, times(1)).ages(argThat(ids -> Set.copyOf(ids).equals(Set.of(1L, 2L))));
+		verify(store, never()).findById(anyLong());
+	}
+
+	@Test
+	void retractedVotesAreReplayedInOrder() throws Exception {
+		PostStore store = storeWith(1L);
+
+		VoteCounter before = new VoteCounter(store);
+		VoteJournal journal = journal(before);
+		journal.start();
+		vote(journal, before, 1L, 2);
+		journal.append(1L, 100, -1);
+		before.decrement(1L);
+
+		clearInvocations(store);
+		VoteCounter after = new VoteCounter(store);
+		VoteLedger ledger = ledger();
+		journal(after, ledger).start();
+
+		assertThat(after.peek(1L)).hasValue(1);
+		assertThat(ledger.hasVoted(1L, 100)).isFalse();
+		assertThat(ledger.hasVoted(1L, 101)).isTrue();
+		verify(store, never()).findById(anyLong());
+	}
+
+	@Test
+	void votesOnDeletedPostsAreDroppedOnRecovery() throws Exception {
+		PostStore store = storeWith(1L);
+
+		VoteCounter before = new VoteCounter(store);
+		VoteJournal journal = journal(before);
+		journal.start();
+		vote(journal, before, 1L, 4);
+
+		PostStore emptied = storeWith();
+		VoteCounter after = new VoteCounter(emptied);
+		journal(after).start();
+		assertThat(after.peek(1L)).isEmpty();
+
+		// the orphaned delta was settled, so a third start adds nothing to the store's count
+		VoteCounter third = new VoteCounter(store);
+		journal(third).start();
+		assertThat(third.peek(1L)).hasValue(0);
+	}
+
+	@Test
+	void votesAreStillAcknowledgedWhileTheDiskFails() throws Exception {
+		VoteCounter counter = new VoteCounter(storeWith(1L));
+		AtomicBoolean diskFull = new AtomicBoolean(true);
+		AtomicInteger forced = new AtomicInteger();
+		VoteJournal journal = new VoteJournal(counter, ledger(), true, dir.toString(), 4096, true, 1, 200) {
+			@Override
+			void force(MappedByteBuffer buf, int from, int length) {
+				forced.incrementAndGet();
+				if (diskFull.get()) throw new UncheckedIOException(new IOException("No space left on device"));
+				super.force(buf, from, length);
+			}
+		};
+		journal.start();
+
+		// the syncer survives the failures and the votes return instead of waiting for a sync that never comes
+		assertTimeoutPreemptively(Duration.ofSeconds(5), () -> vote(journal, counter, 1L, 20));
+		assertThat(counter.current(1L)).hasValue(20);
+		int failedForces = forced.get();
+		assertThat(failedForces).isPositive();
+
+		// once the disk is back the failed range is forced again and votes wait for their sync as before
+		diskFull.set(false);
+		assertTimeoutPreemptively(Duration.ofSeconds(5), () -> vote(journal, counter, 1L, 1));
+		assertThat(forced.get()).isGreaterThan(failedForces);
+		journal.stop();
+	}
+
+	private VoteJournal journal(VoteCounter counter) {
+		return journal(counter, ledger());
+	}
+
+	private VoteJournal journal(VoteCounter counter, VoteLedger ledger) {
+		return new VoteJournal(counter, ledger, true, dir.toString(), 4096, true, 1, 1000);
+	}
+
+	private static VoteLedger ledger() {
+		VoteRepository votes = mock(VoteRepository.class);
+		when(votes.findUserIdsByPostId(anyLong())).thenReturn(List.of());
+		return new VoteLedger(Optional.of(votes), Optional.empty());
+	}
+
+	private static void vote(VoteJournal journal, VoteCounter counter, long postId, int times) {
+		for (int i = 0; i < times; i++) {
+			journal.append(postId, 100 + i, 1);
+			counter.increment(postId);
+		}
+	}
+
+	private static PostStore storeWith(Long... ids) {
+		PostStore store = mock(PostStore.class);
+		when(store.isAvailable()).thenReturn(true);
+		when(store.findById(anyLong())).thenReturn(Optional.empty());
+		for (Long id : ids) {
+			when(store.findById(id)).thenAnswer(inv -> Optional.of(Post.restore(id, "p" + id, 0, null, 0)));
+		}
+		Set<Long> known = Set.of(ids);
+		when(store.ages(any())).thenAnswer(inv -> {
+			List<PostAge> found = new ArrayList<>();
+			for (Long id : inv.<Collection<Long>>getArgument(0)) {
+				if (!known.contains(id)) continue;
+				PostAge age = mock(PostAge.class);
+				when(age.getId()).thenReturn(id);
+				found.add(age);
+			}
+			return found;
+		});
+		return store;
+	}
+}
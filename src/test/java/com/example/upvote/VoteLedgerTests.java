@@ -0,0 +1,102 @@
+package com.example.upvote;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class VoteLedgerTests {
+
+	@Test
+	void votesAreIdempotentPerUser() {
+		VoteRepository votes = mock(VoteRepository.class);
+		when(votes.findUserIdsByPostId(1L)).thenReturn(List.of(7L));
+
+		VoteLedger ledger = new VoteLedger(Optional.of(votes), Optional.empty());
+
+		assertThat(ledger.hasVoted(1L, 7L)).isTrue();
+		assertThat(ledger.record(1L, 7L)).isFalse();
+		assertThat(ledger.record(1L, 8L)).isTrue();
+		assertThat(ledger.record(1L, 8L)).isFalse();
+		assertThat(ledger.retract(1L, 9L)).isFalse();
+		assertThat(ledger.retract(1L, 8L)).isTrue();
+		assertThat(ledger.hasVoted(1L, 8L)).isFalse();
+
+		// voters of a post are loaded once, then answered from memory
+		verify(votes, times(1)).findUserIdsByPostId(1L);
+	}
+
+	@Test
+	void firstTouchesShareOneQueryAndBlockNoOtherPost() throws Exception {
+		VoteRepository votes = mock(VoteRepository.class);
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(votes.findUserIdsByPostId(1L)).thenAnswer(inv -> {
+			loading.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return List.of(7L);
+		});
+		when(votes.findUserIdsByPostId(2L)).thenReturn(List.of());
+
+		VoteLedger ledger = new VoteLedger(Optional.of(votes), Optional.empty());
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		Future<Boolean> first = pool.submit(() -> ledger.record(1L, 7L));
+		assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+		Future<Boolean> second = pool.submit(() -> ledger.record(1L, 8L));
+
+		// the query of post 1 is in flight; post 2 is answered meanwhile
+		assertThat(pool.submit(() -> ledger.record(2L, 7L)).get(5, TimeUnit.SECONDS)).isTrue();
+		release.countDown();
+		assertThat(first.get(5, TimeUnit.SECONDS)).isFalse();
+		assertThat(second.get(5, TimeUnit.SECONDS)).isTrue();
+		pool.shutdown();
+
+		assertThat(ledger.hasVoted(1L, 8L)).isTrue();
+		verify(votes, times(1)).findUserIdsByPostId(1L);
+	}
+
+	@Test
+	void flushDropsTheLeastRecentlyUsedPostsAndTheyAreReadBack() {
+		VoteRepository votes = mock(VoteRepository.class);
+		when(votes.findUserIdsByPostId(1L)).thenReturn(List.of(1L, 2L));
+		when(votes.findUserIdsByPostId(2L)).thenReturn(List.of(3L, 4L));
+		when(votes.findUserIdsByPostId(3L)).thenReturn(List.of(5L));
+
+		VoteLedger ledger = new VoteLedger(Optional.of(votes), Optional.empty(), 4);
+		assertThat(ledger.hasVoted(1L, 1L)).isTrue();
+		assertThat(ledger.hasVoted(2L, 3L)).isTrue();
+		assertThat(ledger.record(3L, 9L)).isTrue(); // no table: the row stays pending
+		assertThat(ledger.hasVoted(1L, 2L)).isTrue();
+		assertThat(ledger.cachedVoters()).isEqualTo(6);
+
+		// post 2 is the least recently used; post 3 has a row the table does not have yet
+		ledger.flush();
+		assertThat(ledger.cachedVoters()).isEqualTo(4);
+
+		assertThat(ledger.hasVoted(2L, 4L)).isTrue();
+		assertThat(ledger.record(3L, 9L)).isFalse();
+		verify(votes, times(2)).findUserIdsByPostId(2L);
+		verify(votes, times(1)).findUserIdsByPostId(1L);
+		verify(votes, times(1)).findUserIdsByPostId(3L);
+	}
+
+	@Test
+	void longHashSetSurvivesGrowthAndRemoval() {
+		LongHashSet set = new LongHashSet();
+		for (long i = 0; i < 10_000; i++) assertThat(set.add(i * 31)).isTrue();
+		for (long i = 0; i < 10_000; i += 2) assertThat(set.remove(i * 31)).isTrue();
+
+		assertThat(set.size()).isEqualTo(5_000);
+		assertThat(set.contains(31)).isTrue();
+		assertThat(set.contains(62)).isFalse();
+		assertThat(set.add(62)).isTrue();
+	}
+}